@@ -0,0 +1,65 @@
+package com.example.errorhandler.benchmarks;
+
+import com.example.errorhandler.DefaultErrorMapper;
+import com.example.errorhandler.ErrorCode;
+import com.example.errorhandler.ErrorPayload;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link DefaultErrorMapper#toError} by how the exception type is resolved: a
+ * registered type, a subclass of one, an unmapped type and a registered type behind two
+ * wrappers. Exceptions are allocated once, so only the lookup and rendering are measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DefaultErrorMapperBenchmark {
+
+    private final DefaultErrorMapper mapper = new DefaultErrorMapper();
+
+    private final Throwable exact = new IllegalArgumentException("bad input");
+    private final Throwable subclass = new NumberFormatException("not a number");
+    private final Throwable miss = new UnsupportedOperationException("not supported");
+    private final Throwable wrapped =
+            new CompletionException(new ExecutionException(new IllegalArgumentException("bad input")));
+
+    @Benchmark
+    public ErrorPayload exactHit() {
+        return mapper.toError(exact);
+    }
+
+    @Benchmark
+    public ErrorPayload subclassHit() {
+        return mapper.toError(subclass);
+    }
+
+    @Benchmark
+    public ErrorPayload miss() {
+        return mapper.toError(miss);
+    }
+
+    @Benchmark
+    public ErrorPayload wrappedCause() {
+        return mapper.toError(wrapped);
+    }
+
+    @Benchmark
+    public ErrorCode codeOnly() {
+        return mapper.toErrorCode(wrapped);
+    }
+}
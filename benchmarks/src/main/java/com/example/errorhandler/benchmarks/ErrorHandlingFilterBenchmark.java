@@ -0,0 +1,84 @@
+package com.example.errorhandler.benchmarks;
+
+import com.example.errorhandler.ErrorCode;
+import com.example.errorhandler.ErrorCodeException;
+import com.example.errorhandler.ErrorHandlingFilter;
+import com.example.errorhandler.testing.InMemoryRequest;
+import com.example.errorhandler.testing.InMemoryResponse;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end cost of {@link ErrorHandlingFilter#doFilter} against in-memory request and
+ * response stubs: a request that succeeds, and failures answered with a precomputed body,
+ * a rendered body and a body with a retry hint. Exceptions are allocated once, so the
+ * numbers cover mapping, logging and writing but not throwing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ErrorHandlingFilterBenchmark {
+
+    private final ErrorHandlingFilter filter = new ErrorHandlingFilter();
+    private final InMemoryRequest request = new InMemoryRequest("192.0.2.1");
+    private final InMemoryResponse response = new InMemoryResponse();
+
+    private final FilterChain succeeding = (req, resp) -> { };
+    private final FilterChain precomputed = failingWith(new NullPointerException());
+    private final FilterChain rendered =
+            failingWith(new ErrorCodeException(ErrorCode.RESOURCE_NOT_FOUND, "A-42"));
+    private final FilterChain retryable = failingWith(new RejectedExecutionException("queue full"));
+
+    @TearDown
+    public void tearDown() {
+        filter.destroy();
+    }
+
+    @Benchmark
+    public long success() throws IOException {
+        return run(succeeding);
+    }
+
+    @Benchmark
+    public long precomputedError() throws IOException {
+        return run(precomputed);
+    }
+
+    @Benchmark
+    public long renderedError() throws IOException {
+        return run(rendered);
+    }
+
+    @Benchmark
+    public long retryableError() throws IOException {
+        return run(retryable);
+    }
+
+    private long run(FilterChain chain) throws IOException {
+        response.reset();
+        filter.doFilter(request, response, chain);
+        return response.getStatus() + response.bodyBytes();
+    }
+
+    private static FilterChain failingWith(RuntimeException failure) {
+        return (req, resp) -> {
+            throw failure;
+        };
+    }
+}
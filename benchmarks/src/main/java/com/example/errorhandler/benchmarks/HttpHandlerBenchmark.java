@@ -0,0 +1,121 @@
+package com.example.errorhandler.benchmarks;
+
+import com.example.errorhandler.DefaultErrorMapper;
+import com.example.errorhandler.ErrorCode;
+import com.example.errorhandler.ErrorCodeException;
+import com.example.errorhandler.ErrorHandlingHttpHandler;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trip over loopback to a JDK {@link HttpServer} whose handlers are wrapped in
+ * {@link ErrorHandlingHttpHandler}: a successful exchange for reference, an error answered
+ * with a precomputed body and one with a rendered message. Handlers run on a fixed pool of
+ * platform threads; on JDK 21 or later add virtual threads with
+ * {@code -p executor=platform,virtual}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+// without TCP_NODELAY, Nagle and delayed ACKs add ~40 ms to every exchange
+@Fork(value = 1, jvmArgsAppend = "-Dsun.net.httpserver.nodelay=true")
+public class HttpHandlerBenchmark {
+
+    @Param("platform")
+    private String executor;
+
+    private HttpServer server;
+    private ExecutorService executorService;
+    private HttpClient client;
+    private HttpRequest ok;
+    private HttpRequest precomputed;
+    private HttpRequest rendered;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        executorService = executor.equals("virtual")
+                ? virtualThreadExecutor()
+                : Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(executorService);
+        DefaultErrorMapper mapper = new DefaultErrorMapper();
+        route(mapper, "/ok", exchange -> {
+            byte[] body = "ok".getBytes(StandardCharsets.US_ASCII);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        route(mapper, "/precomputed", exchange -> {
+            throw new ErrorCodeException(ErrorCode.RESOURCE_NOT_FOUND);
+        });
+        route(mapper, "/rendered", exchange -> {
+            throw new ErrorCodeException(ErrorCode.RESOURCE_NOT_FOUND, "A-42");
+        });
+        server.start();
+
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        String base = "http://127.0.0.1:" + server.getAddress().getPort();
+        ok = HttpRequest.newBuilder(URI.create(base + "/ok")).build();
+        precomputed = HttpRequest.newBuilder(URI.create(base + "/precomputed")).build();
+        rendered = HttpRequest.newBuilder(URI.create(base + "/rendered")).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.stop(0);
+        executorService.shutdownNow();
+    }
+
+    @Benchmark
+    public byte[] success() throws Exception {
+        return client.send(ok, HttpResponse.BodyHandlers.ofByteArray()).body();
+    }
+
+    @Benchmark
+    public byte[] precomputedError() throws Exception {
+        return client.send(precomputed, HttpResponse.BodyHandlers.ofByteArray()).body();
+    }
+
+    @Benchmark
+    public byte[] renderedError() throws Exception {
+        return client.send(rendered, HttpResponse.BodyHandlers.ofByteArray()).body();
+    }
+
+    private static ExecutorService virtualThreadExecutor() throws Exception {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("executor=virtual needs JDK 21 or later, running on "
+                    + Runtime.version(), e);
+        }
+    }
+
+    private void route(DefaultErrorMapper mapper, String path, HttpHandler handler) {
+        server.createContext(path, new ErrorHandlingHttpHandler(mapper, handler));
+    }
+}
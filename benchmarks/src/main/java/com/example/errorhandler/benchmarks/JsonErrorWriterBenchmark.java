@@ -0,0 +1,65 @@
+package com.example.errorhandler.benchmarks;
+
+import com.example.errorhandler.ErrorCode;
+import com.example.errorhandler.ErrorPayload;
+import com.example.errorhandler.JsonErrorWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of encoding an {@link ErrorPayload} to its JSON body, for plain ASCII messages,
+ * messages that need escaping, non-ASCII messages and bodies with a retry hint.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonErrorWriterBenchmark {
+
+    private final ErrorPayload ascii =
+            new ErrorPayload(ErrorCode.RESOURCE_NOT_FOUND, "Resource customerId not found.");
+    private final ErrorPayload escaped =
+            new ErrorPayload(ErrorCode.VALIDATION_FAILED, "Field \"name\" is invalid:\n\tmust not be blank");
+    private final ErrorPayload nonAscii =
+            new ErrorPayload(ErrorCode.VALIDATION_FAILED, "Feld «Straße» ist ungültig – 无效");
+    private final ErrorPayload retryable =
+            new ErrorPayload(ErrorCode.SERVICE_UNAVAILABLE, ErrorCode.SERVICE_UNAVAILABLE.getTemplate());
+
+    private final byte[] buffer = new byte[256];
+
+    @Benchmark
+    public byte[] encodeAscii() {
+        return JsonErrorWriter.encode(ascii);
+    }
+
+    @Benchmark
+    public byte[] encodeEscaped() {
+        return JsonErrorWriter.encode(escaped);
+    }
+
+    @Benchmark
+    public byte[] encodeNonAscii() {
+        return JsonErrorWriter.encode(nonAscii);
+    }
+
+    @Benchmark
+    public byte[] encodeRetryHint() {
+        return JsonErrorWriter.encode(retryable, 7);
+    }
+
+    @Benchmark
+    public int encodeAsciiIntoBuffer() {
+        return JsonErrorWriter.encode(ascii, buffer, 0);
+    }
+}
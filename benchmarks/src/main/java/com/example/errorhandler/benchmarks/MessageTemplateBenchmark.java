@@ -0,0 +1,67 @@
+package com.example.errorhandler.benchmarks;
+
+import com.example.errorhandler.ErrorCode;
+import com.example.errorhandler.MessageTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares rendering a precompiled {@link MessageTemplate} against {@code String.format}
+ * on the same templates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageTemplateBenchmark {
+
+    private static final String MULTI = "Order %1$s for customer %2$s failed at step %3$s (retry %1$s).";
+
+    private final MessageTemplate single = ErrorCode.RESOURCE_NOT_FOUND.getMessageTemplate();
+    private final MessageTemplate multi = MessageTemplate.compile(MULTI);
+
+    private String field = "customerId";
+    private long id = 4711L;
+    private Object[] args = {"A-42", "c-17", "payment"};
+
+    @Benchmark
+    public String formatSingle() {
+        return String.format(ErrorCode.RESOURCE_NOT_FOUND.getTemplate(), field);
+    }
+
+    @Benchmark
+    public String renderSingle() {
+        return single.render(field);
+    }
+
+    @Benchmark
+    public String formatLong() {
+        return String.format(ErrorCode.RESOURCE_NOT_FOUND.getTemplate(), id);
+    }
+
+    @Benchmark
+    public String renderLong() {
+        return single.render(id);
+    }
+
+    @Benchmark
+    public String formatMulti() {
+        return String.format(MULTI, args);
+    }
+
+    @Benchmark
+    public String renderMulti() {
+        return multi.render(args);
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.errorhandler.benchmarks;
+
+import com.example.errorhandler.ErrorCode;
+import com.example.errorhandler.ErrorCodeException;
+import com.example.errorhandler.StackTraceMode;
+import com.example.errorhandler.StackTracePolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of throwing and catching an {@link ErrorCodeException} in each {@link StackTraceMode},
+ * compared with a preallocated instance and a plain {@link RuntimeException}. The exception is
+ * thrown {@code depth} frames below the benchmark method to resemble a servlet call stack.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StackTraceModeBenchmark {
+
+    @Param({"10", "100"})
+    private int depth;
+
+    @Setup
+    public void setUp() {
+        StackTracePolicy.setTopFrames(8);
+    }
+
+    @Benchmark
+    public Object plainRuntimeException() {
+        return catching(() -> {
+            throw new RuntimeException("Resource not found: 42.");
+        });
+    }
+
+    @Benchmark
+    public Object full() {
+        return catching(() -> {
+            throw new ModeException(StackTraceMode.FULL);
+        });
+    }
+
+    @Benchmark
+    public Object topFrames() {
+        return catching(() -> {
+            throw new ModeException(StackTraceMode.TOP_FRAMES);
+        });
+    }
+
+    @Benchmark
+    public Object none() {
+        return catching(() -> {
+            throw new ModeException(StackTraceMode.NONE);
+        });
+    }
+
+    @Benchmark
+    public Object preallocated() {
+        return catching(() -> {
+            throw ErrorCodeException.preallocated(ErrorCode.UNKNOWN_ERROR);
+        });
+    }
+
+    private Object catching(Runnable thrower) {
+        try {
+            recurse(depth, thrower);
+            return null;
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+
+    private static void recurse(int remaining, Runnable thrower) {
+        if (remaining == 0) {
+            thrower.run();
+        } else {
+            recurse(remaining - 1, thrower);
+        }
+    }
+
+    private static final class ModeException extends ErrorCodeException {
+        ModeException(StackTraceMode mode) {
+            super(ErrorCode.RESOURCE_NOT_FOUND, mode, null, "42");
+        }
+    }
+}
@@ -2,7 +2,6 @@ package com.example.app;
 
 import com.example.errorhandler.DefaultErrorMapper;
 import com.example.errorhandler.ErrorHandlingFilter;
-import com.example.errorhandler.ErrorCode;
 import jakarta.servlet.FilterRegistration;
 import jakarta.servlet.ServletContext;
 
@@ -11,8 +10,9 @@ import jakarta.servlet.ServletContext;
 public class AppConfig {
     public void registerFilters(ServletContext ctx) {
         DefaultErrorMapper mapper = new DefaultErrorMapper();
-        // register custom exception mappings
-        mapper.registerMapping(CustomException.class, ErrorCode.RESOURCE_NOT_FOUND);
+        // register mappings for exceptions that do not implement ErrorCoded, e.g.
+        // mapper.registerMapping(SomeLibraryException.class, ErrorCode.RESOURCE_NOT_FOUND);
+        // CustomException carries its own code and needs no registration
 
         FilterRegistration.Dynamic filter = ctx.addFilter("errorFilter",
                 new ErrorHandlingFilter(mapper));
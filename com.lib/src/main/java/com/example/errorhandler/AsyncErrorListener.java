@@ -0,0 +1,62 @@
+package com.example.errorhandler;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+
+import java.io.IOException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Maps failures of asynchronous requests through the owning {@link ErrorHandlingFilter}. A
+ * single instance serves every request: the request and response are taken from the
+ * {@link AsyncEvent}, so registering it allocates nothing per request.
+ */
+final class AsyncErrorListener implements AsyncListener {
+
+    /**
+     * Stands in for the missing throwable of a timeout event. Mapped like any
+     * {@link TimeoutException}; shared, so it carries no stack trace.
+     */
+    static final TimeoutException ASYNC_TIMEOUT = new AsyncTimeoutException();
+
+    private final ErrorHandlingFilter filter;
+
+    AsyncErrorListener(ErrorHandlingFilter filter) {
+        this.filter = filter;
+    }
+
+    @Override
+    public void onError(AsyncEvent event) throws IOException {
+        Throwable error = event.getThrowable();
+        filter.handleAsyncError(event, error != null ? error : new IllegalStateException("Asynchronous request failed"));
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) throws IOException {
+        filter.handleAsyncError(event, ASYNC_TIMEOUT);
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+        // listeners are cleared when the application restarts async processing
+        event.getAsyncContext().addListener(this, event.getSuppliedRequest(), event.getSuppliedResponse());
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+    }
+
+    private static final class AsyncTimeoutException extends TimeoutException {
+
+        private static final long serialVersionUID = 1L;
+
+        AsyncTimeoutException() {
+            super("Asynchronous request timed out");
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.errorhandler;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Approximate per-client error counts in fixed memory, for turning away clients that keep
+ * failing.
+ * <p>
+ * Counts are kept in a count-min sketch of {@value #DEPTH} rows of {@value #WIDTH} counters:
+ * each client increments one counter per row and its estimate is the smallest of them, so
+ * collisions can only overstate a count, never hide one. The rows index a 64-bit hash of the
+ * client key, salted per row, so clients colliding in one row rarely collide in the others.
+ * Every {@code decayInterval} all counts are halved, so a client's estimate settles at about
+ * twice the errors it causes per interval and fades once it stops. Each counter remembers the
+ * interval it was last written in and is halved lazily when next touched, so no thread ever
+ * walks the table. Memory is the same for ten clients or ten million.
+ */
+public final class ClientErrorLimiter {
+
+    public static final int DEFAULT_MAX_ERRORS = 50;
+    public static final Duration DEFAULT_DECAY_INTERVAL = Duration.ofSeconds(10);
+
+    static final int DEPTH = 4;
+    static final int WIDTH = 4096;
+    private static final long[] SEEDS = {
+            0x9e3779b97f4a7c15L, 0xc2b2ae3d27d4eb4fL, 0x165667b19e3779f9L, 0xd6e8feb86659fd93L
+    };
+    private static final long COUNT_MASK = 0xffffffffL;
+
+    private final int maxErrors;
+    private final long decayNanos;
+    private final LongSupplier clock;
+    private final long origin;
+    /** Per counter: the decay interval it was last written in (high half) and its count (low half). */
+    private final AtomicLongArray counters = new AtomicLongArray(DEPTH * WIDTH);
+
+    public ClientErrorLimiter() {
+        this(DEFAULT_MAX_ERRORS, DEFAULT_DECAY_INTERVAL);
+    }
+
+    /**
+     * @param maxErrors     estimated error count at which a client is limited
+     * @param decayInterval time after which all counts are halved
+     */
+    public ClientErrorLimiter(int maxErrors, Duration decayInterval) {
+        this(maxErrors, decayInterval, System::nanoTime);
+    }
+
+    ClientErrorLimiter(int maxErrors, Duration decayInterval, LongSupplier clock) {
+        if (maxErrors < 1) {
+            throw new IllegalArgumentException("maxErrors must be positive: " + maxErrors);
+        }
+        this.maxErrors = maxErrors;
+        this.decayNanos = decayInterval.toNanos();
+        this.clock = clock;
+        this.origin = clock.getAsLong();
+    }
+
+    /**
+     * Counts one error caused by {@code client}.
+     */
+    public void recordError(String client) {
+        int interval = currentInterval();
+        long hash = hash(client);
+        for (int row = 0; row < DEPTH; row++) {
+            int index = index(hash, row);
+            long current;
+            long next;
+            do {
+                current = counters.get(index);
+                int count = decayed(current, interval);
+                // saturate instead of wrapping for clients that never stop
+                next = pack(interval, count < Integer.MAX_VALUE ? count + 1 : count);
+            } while (!counters.compareAndSet(index, current, next));
+        }
+    }
+
+    /**
+     * Whether {@code client} has caused at least {@code maxErrors} recent errors.
+     */
+    public boolean isLimited(String client) {
+        return estimate(client) >= maxErrors;
+    }
+
+    int estimate(String client) {
+        int interval = currentInterval();
+        long hash = hash(client);
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            min = Math.min(min, decayed(counters.get(index(hash, row)), interval));
+        }
+        return min;
+    }
+
+    /**
+     * Time after which a limited client's count has halved, in whole seconds.
+     */
+    long getRetryAfterSeconds() {
+        return Math.max(1, Duration.ofNanos(decayNanos).toSeconds());
+    }
+
+    private int currentInterval() {
+        return (int) ((clock.getAsLong() - origin) / decayNanos);
+    }
+
+    /**
+     * The counter's count as of {@code interval}: halved once per interval since it was written.
+     */
+    private static int decayed(long counter, int interval) {
+        int count = (int) (counter & COUNT_MASK);
+        int elapsed = interval - (int) (counter >>> 32);
+        if (count == 0 || elapsed <= 0) {
+            return count;
+        }
+        return elapsed >= 31 ? 0 : count >>> elapsed;
+    }
+
+    private static long pack(int interval, int count) {
+        return (long) interval << 32 | (count & COUNT_MASK);
+    }
+
+    /**
+     * 64-bit FNV-1a over the key's characters, so keys sharing a {@code String.hashCode} are
+     * still told apart.
+     */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    private static int index(long hash, int row) {
+        // murmur3 finalizer over the hash salted per row
+        long h = (hash ^ SEEDS[row]) * 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return row * WIDTH + ((int) h & (WIDTH - 1));
+    }
+}
@@ -1,33 +1,329 @@
 package com.example.errorhandler;
 
 
+import java.lang.invoke.MethodHandles;
+import java.net.SocketTimeoutException;
+import java.lang.invoke.VarHandle;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.UnaryOperator;
 
 public class DefaultErrorMapper implements ErrorMapper {
 
-    private final Map<Class<? extends Throwable>, ErrorCode> mapping = new HashMap<>();
+    private static final VarHandle SNAPSHOT;
+
+    static {
+        try {
+            SNAPSHOT = MethodHandles.lookup()
+                    .findVarHandle(DefaultErrorMapper.class, "snapshot", Snapshot.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Shared payload per code for messages that do not depend on the exception.
+     */
+    private static final ErrorPayload[] TEMPLATE_PAYLOADS = templatePayloads();
+
+    private static final int DEFAULT_MAX_UNWRAP_DEPTH = 8;
+
+    /**
+     * Wrapper types that carry no meaning of their own. Looked up by name so the mapper does
+     * not require the servlet API at runtime.
+     */
+    private static final String[] DEFAULT_WRAPPER_NAMES = {
+            "java.util.concurrent.CompletionException",
+            "java.util.concurrent.ExecutionException",
+            "java.lang.reflect.InvocationTargetException",
+            "java.lang.reflect.UndeclaredThrowableException",
+            "jakarta.servlet.ServletException"
+    };
+
+    /**
+     * Current mappings. Never mutated after publication; writers copy, modify and swap it in,
+     * so {@link #toError} reads it without locking.
+     */
+    private volatile Snapshot snapshot;
 
     public DefaultErrorMapper() {
         // default mappings
-        mapping.put(IllegalArgumentException.class, ErrorCode.VALIDATION_FAILED);
-        mapping.put(NullPointerException.class, ErrorCode.UNKNOWN_ERROR);
+        Map<Class<?>, ErrorCode> defaults = new HashMap<>();
+        defaults.put(IllegalArgumentException.class, ErrorCode.VALIDATION_FAILED);
+        defaults.put(NullPointerException.class, ErrorCode.UNKNOWN_ERROR);
+        // overload and timeouts: the request may succeed later, so let clients back off
+        defaults.put(RejectedExecutionException.class, ErrorCode.SERVICE_UNAVAILABLE);
+        defaults.put(TimeoutException.class, ErrorCode.SERVICE_UNAVAILABLE);
+        defaults.put(SocketTimeoutException.class, ErrorCode.SERVICE_UNAVAILABLE);
         // add more as needed
+        snapshot = new Snapshot(defaults, defaultWrappers(), DEFAULT_MAX_UNWRAP_DEPTH);
+    }
+
+    /**
+     * Maps an exception type to a code. The mapping also applies to subclasses; the most
+     * specific registered type wins. Safe to call while other threads are mapping errors.
+     */
+    public void registerMapping(Class<? extends Throwable> exceptionType, ErrorCode code) {
+        putMapping(exceptionType, code);
+    }
+
+    /**
+     * Maps every exception implementing {@code markerInterface} to a code, as
+     * {@link #registerMapping} does for exception types. A mapping registered for a class
+     * the exception extends is more specific than one for an interface it implements.
+     *
+     * @throws IllegalArgumentException if {@code markerInterface} is not an interface
+     */
+    public void registerInterfaceMapping(Class<?> markerInterface, ErrorCode code) {
+        if (!markerInterface.isInterface()) {
+            throw new IllegalArgumentException(markerInterface.getName() + " is not an interface");
+        }
+        putMapping(markerInterface, code);
+    }
+
+    private void putMapping(Class<?> type, ErrorCode code) {
+        update(current -> {
+            Map<Class<?>, ErrorCode> copy = new HashMap<>(current.mapping);
+            copy.put(type, code);
+            return new Snapshot(copy, current.wrappers, current.maxUnwrapDepth);
+        });
+    }
+
+    /**
+     * Marks a wrapper exception type, and its subclasses, as transparent: instead of the
+     * wrapper, its cause is mapped. {@code CompletionException}, {@code ExecutionException},
+     * {@code InvocationTargetException}, {@code UndeclaredThrowableException} and
+     * {@code ServletException} are registered by default.
+     */
+    public void registerWrapper(Class<? extends Throwable> wrapperType) {
+        update(current -> {
+            Set<Class<?>> copy = new HashSet<>(current.wrappers);
+            copy.add(wrapperType);
+            return new Snapshot(current.mapping, copy, current.maxUnwrapDepth);
+        });
+    }
+
+    /**
+     * Stops treating {@code wrapperType} as transparent, so it is mapped like any other
+     * exception.
+     */
+    public void unregisterWrapper(Class<? extends Throwable> wrapperType) {
+        update(current -> {
+            Set<Class<?>> copy = new HashSet<>(current.wrappers);
+            copy.remove(wrapperType);
+            return new Snapshot(current.mapping, copy, current.maxUnwrapDepth);
+        });
+    }
+
+    /**
+     * Maximum number of wrappers followed before the current exception is mapped as is.
+     */
+    public void setMaxUnwrapDepth(int maxUnwrapDepth) {
+        if (maxUnwrapDepth < 0) {
+            throw new IllegalArgumentException("maxUnwrapDepth must not be negative: " + maxUnwrapDepth);
+        }
+        update(current -> new Snapshot(current.mapping, current.wrappers, maxUnwrapDepth));
     }
 
-    public void registerMapping(Class<? extends Throwable> exceptionClass, ErrorCode code) {
-        mapping.put(exceptionClass, code);
+    private void update(UnaryOperator<Snapshot> change) {
+        Snapshot current;
+        Snapshot next;
+        do {
+            current = snapshot;
+            next = change.apply(current);
+        } while (!SNAPSHOT.compareAndSet(this, current, next));
     }
 
     @Override
     public ErrorPayload toError(Throwable t) {
-        ErrorCode code = mapping.getOrDefault(t.getClass(), ErrorCode.UNKNOWN_ERROR);
-        String msg;
-        if (t.getMessage() != null && code.getTemplate().contains("%s")) {
-            msg = String.format(code.getTemplate(), t.getMessage());
-        } else {
-            msg = code.getTemplate();
-        }
-        return new ErrorPayload(code.getCode(), msg);
+        Snapshot current = snapshot;
+        Resolution resolution = current.resolved.get(t.getClass());
+        if (resolution.transparent) {
+            t = unwrap(t, current);
+            resolution = current.resolved.get(t.getClass());
+        }
+        if (t instanceof ErrorCoded coded && coded.getErrorCode() != null) {
+            return toError(coded);
+        }
+        ErrorCode code = codeOf(resolution);
+        MessageTemplate template = code.getMessageTemplate();
+        if (!template.hasArguments()) {
+            return TEMPLATE_PAYLOADS[code.ordinal()];
+        }
+        String message = t.getMessage();
+        if (message == null) {
+            return TEMPLATE_PAYLOADS[code.ordinal()];
+        }
+        return new ErrorPayload(code, template.render(message));
+    }
+
+    /**
+     * Resolves the code {@link #toError} would use, without rendering a message.
+     */
+    @Override
+    public ErrorCode toErrorCode(Throwable t) {
+        Snapshot current = snapshot;
+        Resolution resolution = current.resolved.get(t.getClass());
+        if (resolution.transparent) {
+            t = unwrap(t, current);
+            resolution = current.resolved.get(t.getClass());
+        }
+        if (t instanceof ErrorCoded coded && coded.getErrorCode() != null) {
+            return coded.getErrorCode();
+        }
+        return codeOf(resolution);
+    }
+
+    /**
+     * Returns the exception {@link #toError} renders from its template arguments, after
+     * unwrapping, or {@code null} if {@code t} maps through the registered mappings.
+     */
+    ErrorCoded codedOf(Throwable t) {
+        Snapshot current = snapshot;
+        if (current.resolved.get(t.getClass()).transparent) {
+            t = unwrap(t, current);
+        }
+        return t instanceof ErrorCoded coded && coded.getErrorCode() != null ? coded : null;
+    }
+
+    private static ErrorCode codeOf(Resolution resolution) {
+        return resolution.code != null ? resolution.code : ErrorCode.UNKNOWN_ERROR;
+    }
+
+    private ErrorPayload toError(ErrorCoded coded) {
+        ErrorCode code = coded.getErrorCode();
+        MessageTemplate template = code.getMessageTemplate();
+        Object[] args = coded.getErrorArguments();
+        if (!template.hasArguments() || args == null || args.length == 0) {
+            return TEMPLATE_PAYLOADS[code.ordinal()];
+        }
+        return new ErrorPayload(code, template.render(args));
+    }
+
+    /**
+     * Follows causes while the current exception is a transparent wrapper, at most
+     * {@code maxUnwrapDepth} steps. A second reference advancing at half speed detects cause
+     * cycles without allocating.
+     */
+    private static Throwable unwrap(Throwable t, Snapshot current) {
+        Throwable slow = t;
+        for (int depth = 0; depth < current.maxUnwrapDepth; depth++) {
+            if (!current.resolved.get(t.getClass()).transparent) {
+                return t;
+            }
+            Throwable cause = t.getCause();
+            if (cause == null || cause == t) {
+                return t;
+            }
+            t = cause;
+            if ((depth & 1) == 1) {
+                slow = slow.getCause();
+                if (slow == t) {
+                    return t;
+                }
+            }
+        }
+        return t;
+    }
+
+    private static Set<Class<?>> defaultWrappers() {
+        Set<Class<?>> wrappers = new HashSet<>();
+        ClassLoader loader = DefaultErrorMapper.class.getClassLoader();
+        for (String name : DEFAULT_WRAPPER_NAMES) {
+            try {
+                wrappers.add(Class.forName(name, false, loader));
+            } catch (ClassNotFoundException | LinkageError absent) {
+                // optional API not on the class path
+            }
+        }
+        return wrappers;
+    }
+
+    private static ErrorPayload[] templatePayloads() {
+        ErrorCode[] codes = ErrorCode.values();
+        ErrorPayload[] payloads = new ErrorPayload[codes.length];
+        for (ErrorCode code : codes) {
+            payloads[code.ordinal()] = new ErrorPayload(code, code.getDefaultMessage());
+        }
+        return payloads;
+    }
+
+    /**
+     * What a concrete exception class resolves to: its most specific mapped code, or
+     * {@code null} when nothing in the hierarchy is mapped, and whether it is a transparent
+     * wrapper.
+     */
+    private record Resolution(ErrorCode code, boolean transparent) {
+    }
+
+    /**
+     * Frozen mapping and wrapper tables together with the per-class resolution cache derived
+     * from them.
+     */
+    private static final class Snapshot {
+
+        private final Map<Class<?>, ErrorCode> mapping;
+        private final Set<Class<?>> wrappers;
+        private final int maxUnwrapDepth;
+
+        private final ClassValue<Resolution> resolved = new ClassValue<>() {
+            @Override
+            protected Resolution computeValue(Class<?> type) {
+                return new Resolution(lookupHierarchy(type), isWrapper(type));
+            }
+        };
+
+        Snapshot(Map<Class<?>, ErrorCode> mapping, Set<Class<?>> wrappers, int maxUnwrapDepth) {
+            this.mapping = Map.copyOf(mapping);
+            this.wrappers = Set.copyOf(wrappers);
+            this.maxUnwrapDepth = maxUnwrapDepth;
+        }
+
+        private boolean isWrapper(Class<?> type) {
+            for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+                if (wrappers.contains(c)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        /**
+         * Walks the superclass chain from {@code type} upwards. At each level the class itself
+         * is checked before the interfaces it declares, so a subclass mapping always beats a
+         * mapping on one of its ancestors.
+         */
+        private ErrorCode lookupHierarchy(Class<?> type) {
+            for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+                ErrorCode code = mapping.get(c);
+                if (code != null) {
+                    return code;
+                }
+                code = lookupInterfaces(c.getInterfaces());
+                if (code != null) {
+                    return code;
+                }
+            }
+            return null;
+        }
+
+        private ErrorCode lookupInterfaces(Class<?>[] interfaces) {
+            for (Class<?> i : interfaces) {
+                ErrorCode code = mapping.get(i);
+                if (code != null) {
+                    return code;
+                }
+            }
+            for (Class<?> i : interfaces) {
+                ErrorCode code = lookupInterfaces(i.getInterfaces());
+                if (code != null) {
+                    return code;
+                }
+            }
+            return null;
+        }
     }
 }
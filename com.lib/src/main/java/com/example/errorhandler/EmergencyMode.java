@@ -0,0 +1,174 @@
+package com.example.errorhandler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+/**
+ * Tracks whether the JVM is too short of memory to serve requests normally.
+ * <p>
+ * The mode is entered when a {@link VirtualMachineError} reaches the filter, or when the heap
+ * still exceeds a threshold after garbage collection, as reported by the platform
+ * {@link java.lang.management.MemoryMXBean}. It lasts for a cooldown period and is extended
+ * as long as the last collection left the heap above the threshold. While it is active,
+ * {@link ErrorHandlingFilter} answers with {@link #getResponse()}, which is rendered up front
+ * so serving it allocates nothing.
+ * <p>
+ * Thresholds are set on the heap memory pools, which is JVM-wide state: the previous values
+ * are restored by {@link #close()}, so instances must be closed in the reverse order of their
+ * creation, and other code setting collection usage thresholds on the same pools will
+ * interfere while an instance is open.
+ */
+public final class EmergencyMode implements NotificationListener, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(EmergencyMode.class);
+
+    public static final int DEFAULT_HEAP_THRESHOLD_PERCENT = 90;
+    public static final Duration DEFAULT_COOLDOWN = Duration.ofSeconds(5);
+
+    private final List<MemoryPoolMXBean> pools;
+    private final long cooldownNanos;
+    private final LongSupplier clock;
+    private final PrecomputedResponse response;
+    private final NotificationEmitter emitter;
+    /** Thresholds the pools had before this instance set its own, or {@code null}. */
+    private long[] previousThresholds;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private volatile boolean active;
+    private volatile long activeUntil;
+
+    /**
+     * @param heapThresholdPercent share of each heap pool's maximum size that may remain in
+     *                             use after a collection
+     * @param cooldown             how long the mode lasts after it was last triggered
+     */
+    public EmergencyMode(int heapThresholdPercent, Duration cooldown) {
+        this(heapPools(), cooldown, System::nanoTime,
+                (NotificationEmitter) ManagementFactory.getMemoryMXBean());
+        if (heapThresholdPercent < 1 || heapThresholdPercent > 100) {
+            throw new IllegalArgumentException("heapThresholdPercent must be between 1 and 100: "
+                    + heapThresholdPercent);
+        }
+        previousThresholds = new long[pools.size()];
+        for (int i = 0; i < pools.size(); i++) {
+            MemoryPoolMXBean pool = pools.get(i);
+            previousThresholds[i] = pool.getCollectionUsageThreshold();
+            pool.setCollectionUsageThreshold(pool.getUsage().getMax() / 100 * heapThresholdPercent);
+        }
+        emitter.addNotificationListener(this, null, null);
+    }
+
+    EmergencyMode(List<MemoryPoolMXBean> pools, Duration cooldown, LongSupplier clock, NotificationEmitter emitter) {
+        this.pools = pools;
+        this.cooldownNanos = cooldown.toNanos();
+        this.clock = clock;
+        this.emitter = emitter;
+        long retryAfter = Math.max(1, cooldown.toSeconds());
+        this.response = PrecomputedResponse.of(ErrorCode.SERVICE_UNAVAILABLE.getHttpStatus(),
+                        new ErrorPayload(ErrorCode.SERVICE_UNAVAILABLE, ErrorCode.SERVICE_UNAVAILABLE.getDefaultMessage()),
+                        retryAfter)
+                .withHeader("Cache-Control", "no-store")
+                .withHeader("Connection", "close");
+    }
+
+    /**
+     * Whether requests should currently be answered with the emergency response.
+     */
+    public boolean isActive() {
+        if (!active) {
+            return false;
+        }
+        long now = clock.getAsLong();
+        if (now - activeUntil < 0) {
+            return true;
+        }
+        if (heapExhausted()) {
+            activeUntil = now + cooldownNanos;
+            return true;
+        }
+        active = false;
+        log.info("Leaving emergency mode");
+        return false;
+    }
+
+    /**
+     * Enters the mode, or extends it, for one cooldown period. {@code reason} is logged when
+     * the mode is entered and should be a constant.
+     */
+    public void trigger(String reason) {
+        activeUntil = clock.getAsLong() + cooldownNanos;
+        if (!active) {
+            active = true;
+            log.warn("Entering emergency mode: {}", reason);
+        }
+    }
+
+    public PrecomputedResponse getResponse() {
+        return response;
+    }
+
+    @Override
+    public void handleNotification(Notification notification, Object handback) {
+        if (MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(notification.getType())) {
+            trigger("heap usage after collection exceeded the threshold");
+        }
+    }
+
+    private boolean heapExhausted() {
+        for (MemoryPoolMXBean pool : pools) {
+            if (pool.isCollectionUsageThresholdExceeded()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Stops listening for memory notifications and restores the pool thresholds this
+     * instance replaced. Closing again has no effect.
+     */
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        if (previousThresholds != null) {
+            for (int i = 0; i < pools.size(); i++) {
+                pools.get(i).setCollectionUsageThreshold(previousThresholds[i]);
+            }
+        }
+        if (emitter == null) {
+            return;
+        }
+        try {
+            emitter.removeNotificationListener(this);
+        } catch (ListenerNotFoundException notRegistered) {
+            // nothing to undo
+        }
+    }
+
+    private static List<MemoryPoolMXBean> heapPools() {
+        List<MemoryPoolMXBean> pools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isCollectionUsageThresholdSupported()
+                    && pool.getUsage().getMax() > 0) {
+                pools.add(pool);
+            }
+        }
+        return pools;
+    }
+}
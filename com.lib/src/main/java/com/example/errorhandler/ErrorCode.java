@@ -1,25 +1,90 @@
 package com.example.errorhandler;
 
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
 public enum ErrorCode {
-    UNKNOWN_ERROR("ERR-000", "An unknown error occurred."),
-    VALIDATION_FAILED("ERR-001", "Validation failed for field: %s."),
-    RESOURCE_NOT_FOUND("ERR-002", "Resource not found: %s."),
-    PERMISSION_DENIED("ERR-003", "Permission denied for resource: %s."),
-    UNPROCESSABLE_ENTITY("ERR-004", "Unprocessable entity: %s.");
+    UNKNOWN_ERROR("ERR-000", 500, "An unknown error occurred."),
+    VALIDATION_FAILED("ERR-001", 400, "Validation failed for field: %s."),
+    RESOURCE_NOT_FOUND("ERR-002", 404, "Resource not found: %s."),
+    PERMISSION_DENIED("ERR-003", 403, "Permission denied for resource: %s."),
+    UNPROCESSABLE_ENTITY("ERR-004", 422, "Unprocessable entity: %s."),
+    SERVICE_UNAVAILABLE("ERR-005", 503, "Service temporarily unavailable.",
+            RetryPolicy.of(Duration.ofSeconds(1), Duration.ofSeconds(30))),
+    TOO_MANY_REQUESTS("ERR-006", 429, "Too many failed requests; retry later.",
+            RetryPolicy.of(Duration.ofSeconds(1), Duration.ofSeconds(60)));
+
+    private static final Map<String, ErrorCode> BY_CODE = new HashMap<>();
+
+    static {
+        for (ErrorCode code : values()) {
+            BY_CODE.put(code.code, code);
+        }
+    }
 
     private final String code;
+    private final int httpStatus;
     private final String template;
+    private final MessageTemplate messageTemplate;
+    private final String defaultMessage;
+    private final RetryPolicy retryPolicy;
 
-    ErrorCode(String code, String template) {
+    ErrorCode(String code, int httpStatus, String template) {
+        this(code, httpStatus, template, null);
+    }
+
+    ErrorCode(String code, int httpStatus, String template, RetryPolicy retryPolicy) {
         this.code = code;
+        this.httpStatus = httpStatus;
         this.template = template;
+        this.messageTemplate = MessageTemplate.compile(template);
+        this.defaultMessage = messageTemplate.withoutArguments();
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * Returns the constant with the given external code, or {@code null} if there is none.
+     */
+    public static ErrorCode fromCode(String code) {
+        return BY_CODE.get(code);
     }
 
     public String getCode() {
         return code;
     }
 
+    public int getHttpStatus() {
+        return httpStatus;
+    }
+
     public String getTemplate() {
         return template;
     }
+
+    /**
+     * The message used when there is no argument to fill in: the template with its argument
+     * slots left out. The same string as {@link #getTemplate()} for codes without arguments.
+     */
+    public String getDefaultMessage() {
+        return defaultMessage;
+    }
+
+    public MessageTemplate getMessageTemplate() {
+        return messageTemplate;
+    }
+
+    /**
+     * Whether a client may repeat the failed request unchanged and expect it to succeed later.
+     */
+    public boolean isRetryable() {
+        return retryPolicy != null;
+    }
+
+    /**
+     * The suggested backoff, or {@code null} if the code is not retryable.
+     */
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
 }
@@ -0,0 +1,126 @@
+package com.example.errorhandler;
+
+/**
+ * Base class for business exceptions that carry an {@link ErrorCode} and the raw arguments
+ * for its message template.
+ * <p>
+ * The message is only rendered when {@link #getMessage()} is first called, e.g. by a logger.
+ * Exceptions that are caught and handled without being logged never format anything, and
+ * {@link DefaultErrorMapper} renders the response from the arguments directly.
+ * <p>
+ * How much of the stack is recorded follows {@link StackTracePolicy} for the exception's code.
+ * The trace is captured once at construction; {@link #fillInStackTrace()} does nothing
+ * afterwards. For codes without template arguments, {@link #preallocated(ErrorCode)} returns
+ * a shared, stackless instance that is free to throw.
+ */
+public class ErrorCodeException extends RuntimeException implements ErrorCoded {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final StackWalker WALKER = StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+
+    private static final ErrorCodeException[] PREALLOCATED = preallocate();
+
+    private final ErrorCode errorCode;
+    private final Object[] args;
+    private String message;
+
+    public ErrorCodeException(ErrorCode errorCode, Object... args) {
+        this(errorCode, (Throwable) null, args);
+    }
+
+    public ErrorCodeException(ErrorCode errorCode, Throwable cause, Object... args) {
+        this(errorCode, StackTracePolicy.modeFor(errorCode), cause, args);
+    }
+
+    /**
+     * Creates an exception with an explicit stack trace mode, ignoring {@link StackTracePolicy}.
+     */
+    protected ErrorCodeException(ErrorCode errorCode, StackTraceMode mode, Throwable cause, Object... args) {
+        super(null, cause, true, mode != StackTraceMode.NONE);
+        this.errorCode = errorCode;
+        this.args = args != null ? args : NO_ARGUMENTS;
+        if (mode == StackTraceMode.FULL) {
+            super.fillInStackTrace();
+        } else if (mode == StackTraceMode.TOP_FRAMES) {
+            setStackTrace(captureTopFrames(StackTracePolicy.getTopFrames()));
+        }
+    }
+
+    private ErrorCodeException(ErrorCode errorCode) {
+        // immutable: no cause, suppression or stack trace can be attached
+        super(null, null, false, false);
+        this.errorCode = errorCode;
+        this.args = NO_ARGUMENTS;
+        this.message = errorCode.getDefaultMessage();
+    }
+
+    /**
+     * Returns the shared instance for a code whose message takes no arguments.
+     *
+     * @throws IllegalArgumentException if the code's template has arguments
+     */
+    public static ErrorCodeException preallocated(ErrorCode code) {
+        ErrorCodeException instance = PREALLOCATED[code.ordinal()];
+        if (instance == null) {
+            throw new IllegalArgumentException(code + " has message arguments and cannot be preallocated");
+        }
+        return instance;
+    }
+
+    @Override
+    public ErrorCode getErrorCode() {
+        return errorCode;
+    }
+
+    @Override
+    public Object[] getErrorArguments() {
+        return args;
+    }
+
+    @Override
+    public String getMessage() {
+        String result = message;
+        if (result == null) {
+            // racy single-check: concurrent callers may both render, all see an equal string
+            result = formatMessage();
+            message = result;
+        }
+        return result;
+    }
+
+    /**
+     * The stack trace is captured in the constructor according to the stack trace mode.
+     */
+    @Override
+    public Throwable fillInStackTrace() {
+        return this;
+    }
+
+    private String formatMessage() {
+        MessageTemplate template = errorCode.getMessageTemplate();
+        if (template.hasArguments() && args.length > 0) {
+            return template.render(args);
+        }
+        return errorCode.getDefaultMessage();
+    }
+
+    private static StackTraceElement[] captureTopFrames(int frames) {
+        return WALKER.walk(stack -> stack
+                .dropWhile(frame -> Throwable.class.isAssignableFrom(frame.getDeclaringClass()))
+                .limit(frames)
+                .map(StackWalker.StackFrame::toStackTraceElement)
+                .toArray(StackTraceElement[]::new));
+    }
+
+    private static ErrorCodeException[] preallocate() {
+        ErrorCode[] codes = ErrorCode.values();
+        ErrorCodeException[] instances = new ErrorCodeException[codes.length];
+        for (ErrorCode code : codes) {
+            if (!code.getMessageTemplate().hasArguments()) {
+                instances[code.ordinal()] = new ErrorCodeException(code);
+            }
+        }
+        return instances;
+    }
+}
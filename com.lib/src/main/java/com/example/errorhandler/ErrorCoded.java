@@ -0,0 +1,22 @@
+package com.example.errorhandler;
+
+/**
+ * Implemented by exceptions that know their {@link ErrorCode} at the throw site.
+ * <p>
+ * {@link DefaultErrorMapper} checks for this interface before consulting its registered
+ * mappings and renders the code's template with {@link #getErrorArguments()} instead of the
+ * exception message.
+ */
+public interface ErrorCoded {
+
+    Object[] NO_ARGUMENTS = {};
+
+    ErrorCode getErrorCode();
+
+    /**
+     * Arguments for the code's message template, in template order.
+     */
+    default Object[] getErrorArguments() {
+        return NO_ARGUMENTS;
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.errorhandler;
+
+/**
+ * One error handled by {@link ErrorHandlingFilter}, as handed to an {@link ErrorEventPipeline}.
+ *
+ * @param error           the exception caught by the filter
+ * @param payload         the payload it was mapped to
+ * @param logPolicy       how the error should be logged
+ * @param timestampMillis when the error was caught, in epoch milliseconds
+ */
+public record ErrorEvent(Throwable error, ErrorPayload payload, LogPolicy logPolicy, long timestampMillis) {
+}
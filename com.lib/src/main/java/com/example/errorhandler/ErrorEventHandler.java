@@ -0,0 +1,17 @@
+package com.example.errorhandler;
+
+/**
+ * Consumes {@link ErrorEvent}s on the background thread of an {@link ErrorEventPipeline}, e.g.
+ * to log them or export them to a monitoring system.
+ */
+@FunctionalInterface
+public interface ErrorEventHandler {
+
+    void onEvent(ErrorEvent event);
+
+    /**
+     * Called after each batch of events, e.g. to flush buffered exports.
+     */
+    default void endOfBatch() {
+    }
+}
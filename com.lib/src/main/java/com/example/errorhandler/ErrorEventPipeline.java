@@ -0,0 +1,157 @@
+package com.example.errorhandler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Moves error logging and export off the request thread.
+ * <p>
+ * Request threads {@link #publish} events into a bounded lock-free ring buffer; a single
+ * daemon thread drains it in batches and passes each event to the handlers in order. When the
+ * buffer is full the {@link OverflowPolicy} decides whether events are dropped, sampled or
+ * wait for space. Dropped events are counted and reported by the consumer thread.
+ */
+public final class ErrorEventPipeline implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ErrorEventPipeline.class);
+
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    /** Under {@link OverflowPolicy#SAMPLE}, one in this many events is kept once half full. */
+    public static final int SAMPLE_RATE = 10;
+
+    private static final int MAX_BATCH = 256;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long BLOCKED_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final MpscRingBuffer<ErrorEvent> buffer;
+    private final OverflowPolicy overflowPolicy;
+    private final List<ErrorEventHandler> handlers;
+    private final Thread consumer;
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicLong sampleCounter = new AtomicLong();
+    private volatile boolean running = true;
+    private volatile boolean consumerParked;
+
+    public ErrorEventPipeline(int capacity, OverflowPolicy overflowPolicy, List<ErrorEventHandler> handlers) {
+        this.buffer = new MpscRingBuffer<>(capacity);
+        this.overflowPolicy = overflowPolicy;
+        this.handlers = List.copyOf(handlers);
+        this.consumer = new Thread(this::consume, "error-event-pipeline");
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+    }
+
+    /**
+     * Hands {@code event} to the consumer thread. Returns {@code false} if the event was
+     * dropped because the buffer was full, sampling skipped it or the pipeline is closed.
+     */
+    public boolean publish(ErrorEvent event) {
+        if (!running) {
+            dropped.increment();
+            return false;
+        }
+        if (overflowPolicy == OverflowPolicy.SAMPLE && buffer.size() >= buffer.capacity() / 2
+                && sampleCounter.incrementAndGet() % SAMPLE_RATE != 0) {
+            dropped.increment();
+            return false;
+        }
+        boolean published = buffer.offer(event);
+        while (!published && overflowPolicy == OverflowPolicy.BLOCK && running) {
+            LockSupport.unpark(consumer);
+            LockSupport.parkNanos(this, BLOCKED_PARK_NANOS);
+            published = buffer.offer(event);
+        }
+        if (!published) {
+            dropped.increment();
+            return false;
+        }
+        if (consumerParked) {
+            LockSupport.unpark(consumer);
+        }
+        return true;
+    }
+
+    /**
+     * Number of events dropped since the last report by the consumer thread.
+     */
+    public long droppedSinceLastReport() {
+        return dropped.sum();
+    }
+
+    /**
+     * Stops accepting events, waits up to {@code timeout} for the buffered ones to be
+     * handled, and stops the consumer thread.
+     *
+     * @return whether all buffered events were handled in time
+     */
+    public boolean close(Duration timeout) {
+        running = false;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join(Math.max(1, timeout.toMillis()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return !consumer.isAlive();
+    }
+
+    @Override
+    public void close() {
+        close(Duration.ofSeconds(5));
+    }
+
+    private void consume() {
+        while (running || !buffer.isEmpty()) {
+            int handled = drainBatch();
+            reportDropped();
+            if (handled == 0) {
+                consumerParked = true;
+                if (running && buffer.isEmpty()) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                consumerParked = false;
+            }
+        }
+        reportDropped();
+    }
+
+    private int drainBatch() {
+        int count = 0;
+        ErrorEvent event;
+        while (count < MAX_BATCH && (event = buffer.poll()) != null) {
+            for (ErrorEventHandler handler : handlers) {
+                try {
+                    handler.onEvent(event);
+                } catch (RuntimeException e) {
+                    log.warn("Error event handler {} failed", handler, e);
+                }
+            }
+            count++;
+        }
+        if (count > 0) {
+            for (ErrorEventHandler handler : handlers) {
+                try {
+                    handler.endOfBatch();
+                } catch (RuntimeException e) {
+                    log.warn("Error event handler {} failed", handler, e);
+                }
+            }
+        }
+        return count;
+    }
+
+    private void reportDropped() {
+        long count = dropped.sumThenReset();
+        if (count > 0) {
+            log.warn("Dropped {} error events because the error event pipeline was saturated", count);
+        }
+    }
+}
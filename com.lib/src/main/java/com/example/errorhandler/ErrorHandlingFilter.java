@@ -1,68 +1,523 @@
 package com.example.errorhandler;
 
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.Filter;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.FilterConfig;
 import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
 import jakarta.servlet.ServletRequest;
 import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Enumeration;
+import java.util.Locale;
 
 public class ErrorHandlingFilter implements Filter {
 
     private static final Logger log = LoggerFactory.getLogger(ErrorHandlingFilter.class);
-    private final ErrorMapper mapper;
+    private static final int DEFAULT_STORM_LOG_SAMPLE_RATE = 100;
+
+    public static final String LOG_WINDOW_SECONDS = "errorLog.windowSeconds";
+    public static final String LOG_SUMMARY_BURST = "errorLog.summaryBurst";
+    public static final String LOG_SUMMARY_INTERVAL_SECONDS = "errorLog.summaryIntervalSeconds";
+    /** Prefix of the per-code init parameters, e.g. {@code errorLog.policy.VALIDATION_FAILED=OFF}. */
+    public static final String LOG_POLICY_PREFIX = "errorLog.policy.";
+    public static final String EVENTS_ASYNC = "errorEvents.async";
+    public static final String EVENTS_CAPACITY = "errorEvents.capacity";
+    public static final String EVENTS_OVERFLOW = "errorEvents.overflow";
+    public static final String ASYNC_WRITE_TIMEOUT_MILLIS = "errorResponse.asyncWriteTimeoutMillis";
+    public static final String EMERGENCY_ENABLED = "emergency.enabled";
+    public static final String EMERGENCY_HEAP_THRESHOLD_PERCENT = "emergency.heapThresholdPercent";
+    public static final String EMERGENCY_COOLDOWN_SECONDS = "emergency.cooldownSeconds";
+    public static final String STORM_ENABLED = "errorStorm.enabled";
+    public static final String STORM_WINDOW_SECONDS = "errorStorm.windowSeconds";
+    public static final String STORM_ENTER_PERCENT = "errorStorm.enterPercent";
+    public static final String STORM_EXIT_PERCENT = "errorStorm.exitPercent";
+    public static final String STORM_MIN_REQUESTS = "errorStorm.minRequests";
+    public static final String STORM_SHORT_CIRCUIT = "errorStorm.shortCircuit";
+    public static final String STORM_LOG_SAMPLE_RATE = "errorStorm.logSampleRate";
+    public static final String CLIENT_LIMIT_ENABLED = "clientErrorLimit.enabled";
+    public static final String CLIENT_LIMIT_MAX_ERRORS = "clientErrorLimit.maxErrors";
+    public static final String CLIENT_LIMIT_DECAY_SECONDS = "clientErrorLimit.decaySeconds";
+    public static final String CLIENT_LIMIT_HEADER = "clientErrorLimit.header";
+    /** Prefix of the per-code init parameters, e.g. {@code cacheControl.RESOURCE_NOT_FOUND=max-age=300}. */
+    public static final String CACHE_CONTROL_PREFIX = "cacheControl.";
+    /** Prefix of the per-route init parameters, e.g. {@code cacheControl.route./static/.RESOURCE_NOT_FOUND}. */
+    public static final String CACHE_CONTROL_ROUTE_PREFIX = "cacheControl.route.";
+
+    private final ErrorResponder responder;
+
+    /**
+     * Time a client gets to accept a non-blocking error body, or 0 to write in blocking mode.
+     */
+    private long asyncWriteTimeoutMillis;
+
+    /**
+     * Registered with every request the application puts into async mode.
+     */
+    private final AsyncErrorListener asyncErrorListener = new AsyncErrorListener(this);
+
+    /**
+     * Creates a filter with a {@link DefaultErrorMapper}, for declaration in {@code web.xml}.
+     */
+    public ErrorHandlingFilter() {
+        this(new DefaultErrorMapper());
+    }
 
     public ErrorHandlingFilter(ErrorMapper mapper) {
-        this.mapper = mapper;
+        this(mapper, StatusResolver.DEFAULT);
+    }
+
+    public ErrorHandlingFilter(ErrorMapper mapper, StatusResolver statusResolver) {
+        this.responder = new ErrorResponder(mapper, statusResolver);
+        responder.setErrorLogger(new ThrottledErrorLogger(log));
+    }
+
+    /**
+     * Creates a filter that serves the responses {@code responder} decides on, which may be
+     * shared with other adapters. The setters of this filter configure {@code responder}.
+     */
+    public ErrorHandlingFilter(ErrorResponder responder) {
+        this.responder = responder;
+    }
+
+    /**
+     * Sets how errors of one code are logged. Call before the filter is put into service.
+     */
+    public void setLogPolicy(ErrorCode code, LogPolicy policy) {
+        responder.setLogPolicy(code, policy);
+    }
+
+    /**
+     * Sets the {@code Cache-Control} header sent with errors of one code, or removes it when
+     * {@code value} is {@code null}. By default {@code 404} and {@code 410} responses may be
+     * cached by the client for a minute ({@code private, max-age=60}) and all others are
+     * {@code no-store}. Routes keep their own overrides and take this value for other codes,
+     * whenever it is set. Call before the filter is put into service.
+     */
+    public void setCacheControl(ErrorCode code, String value) {
+        responder.setCacheControl(code, value);
+    }
+
+    /**
+     * Overrides the {@code Cache-Control} header of one code for request URIs starting with
+     * {@code routePrefix}; the longest matching prefix wins. Other codes on the route keep
+     * the headers set with {@link #setCacheControl(ErrorCode, String)}, before or after this
+     * call. Call before the filter is put into service.
+     */
+    public void setCacheControl(String routePrefix, ErrorCode code, String value) {
+        responder.setCacheControl(routePrefix, code, value);
+    }
+
+    /**
+     * Sets the load signal that scales the {@code Retry-After} delay of retryable codes
+     * between the bounds of their {@link RetryPolicy}. When error storm protection is enabled,
+     * the route's error rate counts as well, whichever is higher.
+     */
+    public void setSaturationSignal(SaturationSignal saturationSignal) {
+        responder.setSaturationSignal(saturationSignal);
+    }
+
+    /**
+     * Replaces the logger used for exceptions caught by this filter. Call before the filter
+     * is put into service.
+     */
+    public void setErrorLogger(ThrottledErrorLogger errorLogger) {
+        responder.setErrorLogger(errorLogger);
+    }
+
+    /**
+     * Moves logging, and any {@code exporters}, to a background thread fed through a bounded
+     * buffer of {@code capacity} events. Call before the filter is put into service; the
+     * pipeline is closed, after handling the buffered events, in {@link #destroy()}.
+     */
+    public void enableAsyncErrorEvents(int capacity, OverflowPolicy overflowPolicy, ErrorEventHandler... exporters) {
+        responder.enableAsyncErrorEvents(capacity, overflowPolicy, exporters);
+    }
+
+    /**
+     * Writes error bodies with non-blocking I/O when the request supports async processing, so
+     * the container thread is released while a slow client reads the response. A client that
+     * has not accepted the body within {@code writeTimeout} has its response abandoned. Call
+     * before the filter is put into service.
+     */
+    public void enableAsyncWrites(Duration writeTimeout) {
+        if (writeTimeout.isNegative() || writeTimeout.isZero()) {
+            throw new IllegalArgumentException("writeTimeout must be positive: " + writeTimeout);
+        }
+        this.asyncWriteTimeoutMillis = writeTimeout.toMillis();
+    }
+
+    /**
+     * Answers every request with a preallocated 503 while the JVM is short of memory: after a
+     * {@link VirtualMachineError} reaches the filter, and while the heap stays above
+     * {@code heapThresholdPercent} after garbage collection. Neither the mapper nor the error
+     * logger runs in that state. Call before the filter is put into service; the mode is
+     * closed in {@link #destroy()}.
+     */
+    public void enableEmergencyMode(EmergencyMode emergencyMode) {
+        responder.enableEmergencyMode(emergencyMode);
+    }
+
+    /**
+     * Tracks the error rate per route with {@code detector}: the request path below the context
+     * with path parameters, i.e. segments containing digits, collapsed. While a route is
+     * degraded, its errors are answered with the precomputed response of their code, without
+     * rendering a message, and only one in {@code logSampleRate} is logged. With {@code shortCircuit},
+     * most requests to a degraded route get a 503 without reaching the application; a few are
+     * let through so recovery is noticed. Call before the filter is put into service.
+     */
+    public void enableErrorStormProtection(ErrorStormDetector detector, boolean shortCircuit, int logSampleRate) {
+        responder.enableErrorStormProtection(detector, shortCircuit, logSampleRate);
     }
 
+    /**
+     * Counts client errors (4xx responses other than 429) per client with {@code limiter} and
+     * answers clients over the limit with a precomputed 429 before the application runs.
+     * Clients are told apart by the value of {@code clientHeader}, such as
+     * {@code X-Forwarded-For} behind a proxy, or by remote address when it is {@code null} or
+     * absent from the request. Call before the filter is put into service.
+     */
+    public void enableClientErrorLimit(ClientErrorLimiter limiter, String clientHeader) {
+        responder.enableClientErrorLimit(limiter, clientHeader);
+    }
+
+    /**
+     * Reads the optional {@value #LOG_WINDOW_SECONDS}, {@value #LOG_SUMMARY_BURST} and
+     * {@value #LOG_SUMMARY_INTERVAL_SECONDS} init parameters, and one
+     * {@value #LOG_POLICY_PREFIX}{@code <CODE>} parameter per code whose {@link LogPolicy}
+     * should differ from the default, in the format accepted by {@link LogPolicy#parse}.
+     * {@value #EVENTS_ASYNC}{@code =true} enables {@link #enableAsyncErrorEvents}, sized by
+     * {@value #EVENTS_CAPACITY} and {@value #EVENTS_OVERFLOW} ({@code DROP}, {@code SAMPLE} or
+     * {@code BLOCK}). {@value #ASYNC_WRITE_TIMEOUT_MILLIS} enables {@link #enableAsyncWrites}.
+     * {@value #EMERGENCY_ENABLED}{@code =true} enables {@link #enableEmergencyMode}, tuned by
+     * {@value #EMERGENCY_HEAP_THRESHOLD_PERCENT} and {@value #EMERGENCY_COOLDOWN_SECONDS}.
+     * {@value #STORM_ENABLED}{@code =true} enables {@link #enableErrorStormProtection}, tuned by
+     * {@value #STORM_WINDOW_SECONDS}, {@value #STORM_ENTER_PERCENT}, {@value #STORM_EXIT_PERCENT},
+     * {@value #STORM_MIN_REQUESTS}, {@value #STORM_SHORT_CIRCUIT} and {@value #STORM_LOG_SAMPLE_RATE}.
+     * {@value #CLIENT_LIMIT_ENABLED}{@code =true} enables {@link #enableClientErrorLimit}, tuned
+     * by {@value #CLIENT_LIMIT_MAX_ERRORS}, {@value #CLIENT_LIMIT_DECAY_SECONDS} and
+     * {@value #CLIENT_LIMIT_HEADER}. {@value #CACHE_CONTROL_PREFIX}{@code <CODE>} and
+     * {@value #CACHE_CONTROL_ROUTE_PREFIX}{@code <prefix>.<CODE>} set {@code Cache-Control}
+     * headers; an empty value removes the header.
+     */
     @Override
     public void init(FilterConfig filterConfig) throws ServletException {
         Filter.super.init(filterConfig);
+        initCacheControl(filterConfig);
+        String window = filterConfig.getInitParameter(LOG_WINDOW_SECONDS);
+        String burst = filterConfig.getInitParameter(LOG_SUMMARY_BURST);
+        String interval = filterConfig.getInitParameter(LOG_SUMMARY_INTERVAL_SECONDS);
+        if (window != null || burst != null || interval != null) {
+            setErrorLogger(new ThrottledErrorLogger(log,
+                    Duration.ofSeconds(parseParameter(LOG_WINDOW_SECONDS, window,
+                            ThrottledErrorLogger.DEFAULT_WINDOW.toSeconds())),
+                    (int) parseParameter(LOG_SUMMARY_BURST, burst, ThrottledErrorLogger.DEFAULT_SUMMARY_BURST),
+                    Duration.ofSeconds(parseParameter(LOG_SUMMARY_INTERVAL_SECONDS, interval,
+                            ThrottledErrorLogger.DEFAULT_SUMMARY_INTERVAL.toSeconds()))));
+        }
+        for (ErrorCode code : ErrorCode.values()) {
+            String policy = filterConfig.getInitParameter(LOG_POLICY_PREFIX + code.name());
+            if (policy != null) {
+                try {
+                    setLogPolicy(code, LogPolicy.parse(policy));
+                } catch (IllegalArgumentException e) {
+                    throw new ServletException("Init parameter " + LOG_POLICY_PREFIX + code.name()
+                            + " is not a log policy: " + policy, e);
+                }
+            }
+        }
+        if (Boolean.parseBoolean(filterConfig.getInitParameter(EVENTS_ASYNC))) {
+            String capacity = filterConfig.getInitParameter(EVENTS_CAPACITY);
+            String overflow = filterConfig.getInitParameter(EVENTS_OVERFLOW);
+            OverflowPolicy overflowPolicy;
+            try {
+                overflowPolicy = overflow != null
+                        ? OverflowPolicy.valueOf(overflow.trim().toUpperCase(Locale.ROOT))
+                        : OverflowPolicy.DROP;
+            } catch (IllegalArgumentException e) {
+                throw new ServletException("Init parameter " + EVENTS_OVERFLOW + " is not an overflow policy: "
+                        + overflow, e);
+            }
+            enableAsyncErrorEvents((int) parseParameter(EVENTS_CAPACITY, capacity, ErrorEventPipeline.DEFAULT_CAPACITY),
+                    overflowPolicy);
+        }
+        String writeTimeout = filterConfig.getInitParameter(ASYNC_WRITE_TIMEOUT_MILLIS);
+        if (writeTimeout != null) {
+            enableAsyncWrites(Duration.ofMillis(parseParameter(ASYNC_WRITE_TIMEOUT_MILLIS, writeTimeout, 0)));
+        }
+        if (Boolean.parseBoolean(filterConfig.getInitParameter(EMERGENCY_ENABLED))) {
+            long threshold = parseParameter(EMERGENCY_HEAP_THRESHOLD_PERCENT,
+                    filterConfig.getInitParameter(EMERGENCY_HEAP_THRESHOLD_PERCENT),
+                    EmergencyMode.DEFAULT_HEAP_THRESHOLD_PERCENT);
+            if (threshold > 100) {
+                throw new ServletException("Init parameter " + EMERGENCY_HEAP_THRESHOLD_PERCENT
+                        + " must not exceed 100: " + threshold);
+            }
+            enableEmergencyMode(new EmergencyMode((int) threshold, Duration.ofSeconds(parseParameter(
+                    EMERGENCY_COOLDOWN_SECONDS, filterConfig.getInitParameter(EMERGENCY_COOLDOWN_SECONDS),
+                    EmergencyMode.DEFAULT_COOLDOWN.toSeconds()))));
+        }
+        if (Boolean.parseBoolean(filterConfig.getInitParameter(STORM_ENABLED))) {
+            ErrorStormDetector detector;
+            try {
+                detector = new ErrorStormDetector(
+                        Duration.ofSeconds(parseParameter(STORM_WINDOW_SECONDS,
+                                filterConfig.getInitParameter(STORM_WINDOW_SECONDS),
+                                ErrorStormDetector.DEFAULT_WINDOW.toSeconds())),
+                        (int) parseParameter(STORM_ENTER_PERCENT, filterConfig.getInitParameter(STORM_ENTER_PERCENT),
+                                ErrorStormDetector.DEFAULT_ENTER_PERCENT),
+                        (int) parseParameter(STORM_EXIT_PERCENT, filterConfig.getInitParameter(STORM_EXIT_PERCENT),
+                                ErrorStormDetector.DEFAULT_EXIT_PERCENT),
+                        (int) parseParameter(STORM_MIN_REQUESTS, filterConfig.getInitParameter(STORM_MIN_REQUESTS),
+                                ErrorStormDetector.DEFAULT_MIN_REQUESTS));
+            } catch (IllegalArgumentException e) {
+                throw new ServletException("Invalid error storm parameters: " + e.getMessage(), e);
+            }
+            enableErrorStormProtection(detector,
+                    Boolean.parseBoolean(filterConfig.getInitParameter(STORM_SHORT_CIRCUIT)),
+                    (int) parseParameter(STORM_LOG_SAMPLE_RATE, filterConfig.getInitParameter(STORM_LOG_SAMPLE_RATE),
+                            DEFAULT_STORM_LOG_SAMPLE_RATE));
+        }
+        if (Boolean.parseBoolean(filterConfig.getInitParameter(CLIENT_LIMIT_ENABLED))) {
+            enableClientErrorLimit(new ClientErrorLimiter(
+                            (int) parseParameter(CLIENT_LIMIT_MAX_ERRORS,
+                                    filterConfig.getInitParameter(CLIENT_LIMIT_MAX_ERRORS),
+                                    ClientErrorLimiter.DEFAULT_MAX_ERRORS),
+                            Duration.ofSeconds(parseParameter(CLIENT_LIMIT_DECAY_SECONDS,
+                                    filterConfig.getInitParameter(CLIENT_LIMIT_DECAY_SECONDS),
+                                    ClientErrorLimiter.DEFAULT_DECAY_INTERVAL.toSeconds()))),
+                    filterConfig.getInitParameter(CLIENT_LIMIT_HEADER));
+        }
+    }
+
+    private void initCacheControl(FilterConfig filterConfig) throws ServletException {
+        for (ErrorCode code : ErrorCode.values()) {
+            String value = filterConfig.getInitParameter(CACHE_CONTROL_PREFIX + code.name());
+            if (value != null) {
+                setCacheControl(code, value.isBlank() ? null : value.trim());
+            }
+        }
+        Enumeration<String> names = filterConfig.getInitParameterNames();
+        while (names != null && names.hasMoreElements()) {
+            String name = names.nextElement();
+            if (!name.startsWith(CACHE_CONTROL_ROUTE_PREFIX)) {
+                continue;
+            }
+            int separator = name.lastIndexOf('.');
+            String route = name.substring(CACHE_CONTROL_ROUTE_PREFIX.length(), Math.max(separator,
+                    CACHE_CONTROL_ROUTE_PREFIX.length()));
+            String codeName = name.substring(separator + 1);
+            ErrorCode code;
+            try {
+                code = ErrorCode.valueOf(codeName);
+            } catch (IllegalArgumentException e) {
+                throw new ServletException("Init parameter " + name + " does not end with an error code", e);
+            }
+            if (route.isEmpty()) {
+                throw new ServletException("Init parameter " + name + " has no route prefix");
+            }
+            String value = filterConfig.getInitParameter(name);
+            setCacheControl(route, code, value == null || value.isBlank() ? null : value.trim());
+        }
     }
 
     @Override
     public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException {
+        PrecomputedResponse emergency = responder.emergencyResponse();
+        if (emergency != null) {
+            sendEmergency(response, emergency);
+            return;
+        }
+        String uri = requestUriOf(request);
+        String routeKey = responder.tracksRoutes() ? routeKeyOf(request) : null;
+        String client = responder.limitsClients() ? clientOf(request) : null;
+        PrecomputedResponse refusal = responder.admit(uri, routeKey, client);
+        if (refusal != null) {
+            send(request, (HttpServletResponse) response, refusal);
+            return;
+        }
         try {
             chain.doFilter(request, response);
+        } catch (VirtualMachineError e) {
+            PrecomputedResponse fatal = response.isCommitted() ? null : responder.onFatalError(e);
+            if (fatal == null) {
+                throw e;
+            }
+            sendEmergency(response, fatal);
+            return;
         } catch (Exception e) {
-            log.error(e.getMessage(), e);
             // Catch Exceptions only (Errors propagate to the container)
-            handleException(e, response);
+            boolean asyncStarted = request.isAsyncStarted();
+            send(request, (HttpServletResponse) response, responder.respond(e, uri, routeKey, client));
+            if (asyncStarted) {
+                // the application went async before failing; nobody else will complete it
+                completeQuietly(request.getAsyncContext());
+            }
+            return;
+        }
+        responder.recordSuccess(routeKey);
+        if (request.isAsyncStarted() && request.getDispatcherType() != DispatcherType.ASYNC) {
+            // on async dispatches the listener has already re-registered itself in onStartAsync
+            request.getAsyncContext().addListener(asyncErrorListener, request, response);
         }
     }
 
-    private void handleException(Exception ex, ServletResponse response) throws IOException {
-
-        ErrorPayload payload = mapper.toError(ex);
+    /**
+     * Writes the emergency response with blocking I/O and without allocating.
+     */
+    private static void sendEmergency(ServletResponse response, PrecomputedResponse emergencyResponse) throws IOException {
         HttpServletResponse resp = (HttpServletResponse) response;
-        resp.setStatus(determineHttpStatus(payload.code()));
-        resp.setContentType("application/json");
-        String json = String.format(
-                "{\"code\":\"%s\",\"message\":\"%s\"}",
-                payload.code(), payload.message()
-        );
-        resp.getWriter().write(json);
+        resp.resetBuffer();
+        resp.setStatus(emergencyResponse.getStatus());
+        resp.setContentType(emergencyResponse.getContentType());
+        resp.setContentLength(emergencyResponse.getBody().length);
+        for (int i = 0; i < emergencyResponse.getHeaderCount(); i++) {
+            resp.setHeader(emergencyResponse.getHeaderName(i), emergencyResponse.getHeaderValue(i));
+        }
+        writeBlocking(resp, emergencyResponse.getBody());
+    }
+
+    /**
+     * Renders {@code error}, reported by the container for an asynchronous request, unless the
+     * response is already on its way to the client, and completes the request.
+     */
+    void handleAsyncError(AsyncEvent event, Throwable error) throws IOException {
+        ServletResponse response = event.getSuppliedResponse();
+        try {
+            if (response.isCommitted()) {
+                return;
+            }
+            PrecomputedResponse fatal = error instanceof VirtualMachineError vmError
+                    ? responder.onFatalError(vmError)
+                    : null;
+            if (fatal != null) {
+                sendEmergency(response, fatal);
+            } else {
+                response.resetBuffer();
+                ServletRequest request = event.getSuppliedRequest();
+                send(request, (HttpServletResponse) response, responder.render(error, requestUriOf(request),
+                        responder.tracksRoutes() ? routeKeyOf(request) : null));
+            }
+        } finally {
+            completeQuietly(event.getAsyncContext());
+        }
+    }
+
+    private static void completeQuietly(AsyncContext context) {
+        try {
+            context.complete();
+        } catch (IllegalStateException alreadyCompleted) {
+            // the application completed or dispatched the request itself
+        }
+    }
+
+    private void send(ServletRequest request, HttpServletResponse resp, PrecomputedResponse precomputedResponse) throws IOException {
+        resp.setStatus(precomputedResponse.getStatus());
+        resp.setContentType(precomputedResponse.getContentType());
+        resp.setContentLength(precomputedResponse.getBody().length);
+        for (int i = 0; i < precomputedResponse.getHeaderCount(); i++) {
+            resp.setHeader(precomputedResponse.getHeaderName(i), precomputedResponse.getHeaderValue(i));
+        }
+        writeBody(request, resp, precomputedResponse.getBody());
+    }
+
+    private void writeBody(ServletRequest request, HttpServletResponse resp, byte[] body) throws IOException {
+        if (asyncWriteTimeoutMillis > 0
+                && NonBlockingBodyWriter.start(request, resp, body, asyncWriteTimeoutMillis)) {
+            return;
+        }
+        writeBlocking(resp, body);
+    }
+
+    private static void writeBlocking(HttpServletResponse resp, byte[] body) throws IOException {
+        ServletOutputStream out;
+        try {
+            out = resp.getOutputStream();
+        } catch (IllegalStateException writerAlreadyUsed) {
+            // the failing servlet already obtained the writer, whose charset was fixed then
+            // and need not be UTF-8; declare the length of what it will actually send
+            String text = new String(body, StandardCharsets.UTF_8);
+            String encoding = resp.getCharacterEncoding();
+            Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.ISO_8859_1;
+            resp.setContentLength(text.getBytes(charset).length);
+            resp.getWriter().write(text);
+            return;
+        }
+        out.write(body);
     }
 
     @Override
     public void destroy() {
+        responder.close();
         Filter.super.destroy();
     }
 
-    private int determineHttpStatus(String code) {
-        // simple mapping, extend as needed
-        return switch (code) {
-            case "ERR-001" -> 400;
-            case "ERR-002" -> 404;
-            case "ERR-003" -> 403;
-            default -> 500;
-        };
+    private String clientOf(ServletRequest request) {
+        String clientHeader = responder.getClientHeader();
+        if (clientHeader != null && request instanceof HttpServletRequest http) {
+            String value = http.getHeader(clientHeader);
+            if (value != null) {
+                return value;
+            }
+        }
+        String address = request.getRemoteAddr();
+        return address != null ? address : "";
     }
 
+    private static String requestUriOf(ServletRequest request) {
+        if (request instanceof HttpServletRequest http) {
+            String uri = http.getRequestURI();
+            if (uri != null) {
+                return uri;
+            }
+        }
+        return "";
+    }
+
+    /**
+     * Key the error storm detector tracks a request under: its path below the context, from
+     * the servlet path and path info, with path parameters collapsed by
+     * {@link ErrorStormDetector#routeKey}. Falls back to the request URI when the container
+     * reports no servlet path.
+     */
+    private static String routeKeyOf(ServletRequest request) {
+        if (request instanceof HttpServletRequest http) {
+            String path = http.getServletPath();
+            if (path == null) {
+                path = http.getRequestURI();
+            } else if (http.getPathInfo() != null) {
+                path = path + http.getPathInfo();
+            }
+            if (path != null) {
+                return ErrorStormDetector.routeKey(path);
+            }
+        }
+        return "";
+    }
+
+    private static long parseParameter(String name, String value, long defaultValue) throws ServletException {
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            long parsed = Long.parseLong(value.trim());
+            if (parsed < 1) {
+                throw new ServletException("Init parameter " + name + " must be positive: " + value);
+            }
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw new ServletException("Init parameter " + name + " is not a number: " + value, e);
+        }
+    }
 }
@@ -0,0 +1,201 @@
+package com.example.errorhandler;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+
+/**
+ * Counterpart of {@link ErrorHandlingFilter} for {@code com.sun.net.httpserver}: wraps an
+ * {@link HttpHandler} and answers the exceptions it throws with the responses an
+ * {@link ErrorResponder} decides on, including emergency mode, error storm shedding, the
+ * per-client error limit and per-route {@code Cache-Control} overrides.
+ * <p>
+ * Bodies are sent with their exact length, so the server neither buffers nor chunks them.
+ * Nothing is sent if the wrapped handler had already sent the response headers; the exchange
+ * is closed in either case. Error storms are tracked per request path, with path parameters
+ * collapsed by {@link ErrorStormDetector#routeKey}. Does not depend on the Servlet API.
+ *
+ * <pre>{@code
+ * HttpServer server = HttpServer.create(new InetSocketAddress(8080), 0);
+ * server.createContext("/", new ErrorHandlingHttpHandler(new DefaultErrorMapper(), appHandler));
+ * server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+ * }</pre>
+ */
+public class ErrorHandlingHttpHandler implements HttpHandler {
+
+    private static final Logger log = LoggerFactory.getLogger(ErrorHandlingHttpHandler.class);
+
+    private final ErrorResponder responder;
+    private final HttpHandler delegate;
+
+    public ErrorHandlingHttpHandler(ErrorMapper mapper, HttpHandler delegate) {
+        this(mapper, StatusResolver.DEFAULT, delegate);
+    }
+
+    public ErrorHandlingHttpHandler(ErrorMapper mapper, StatusResolver statusResolver, HttpHandler delegate) {
+        this(new ErrorResponder(mapper, statusResolver), delegate);
+        responder.setErrorLogger(new ThrottledErrorLogger(log));
+    }
+
+    /**
+     * Wraps {@code delegate} with the responses {@code responder} decides on, which may be
+     * shared with other adapters. The setters of this handler configure {@code responder}.
+     */
+    public ErrorHandlingHttpHandler(ErrorResponder responder, HttpHandler delegate) {
+        this.responder = responder;
+        this.delegate = delegate;
+    }
+
+    /**
+     * Sets how errors of one code are logged. Call before the handler is put into service.
+     */
+    public void setLogPolicy(ErrorCode code, LogPolicy policy) {
+        responder.setLogPolicy(code, policy);
+    }
+
+    /**
+     * Sets the {@code Cache-Control} header sent with errors of one code, or removes it when
+     * {@code value} is {@code null}. Defaults are as for {@link ErrorHandlingFilter}.
+     */
+    public void setCacheControl(ErrorCode code, String value) {
+        responder.setCacheControl(code, value);
+    }
+
+    /**
+     * Overrides the {@code Cache-Control} header of one code for request paths starting with
+     * {@code routePrefix}, as {@link ErrorResponder#setCacheControl(String, ErrorCode, String)}.
+     */
+    public void setCacheControl(String routePrefix, ErrorCode code, String value) {
+        responder.setCacheControl(routePrefix, code, value);
+    }
+
+    /**
+     * Sets the load measure that stretches retry hints towards their maximum.
+     */
+    public void setSaturationSignal(SaturationSignal saturationSignal) {
+        responder.setSaturationSignal(saturationSignal);
+    }
+
+    public void setErrorLogger(ThrottledErrorLogger errorLogger) {
+        responder.setErrorLogger(errorLogger);
+    }
+
+    /**
+     * See {@link ErrorResponder#enableEmergencyMode}; the mode stays open until the responder
+     * is closed.
+     */
+    public void enableEmergencyMode(EmergencyMode emergencyMode) {
+        responder.enableEmergencyMode(emergencyMode);
+    }
+
+    /**
+     * See {@link ErrorResponder#enableErrorStormProtection}.
+     */
+    public void enableErrorStormProtection(ErrorStormDetector detector, boolean shortCircuit, int logSampleRate) {
+        responder.enableErrorStormProtection(detector, shortCircuit, logSampleRate);
+    }
+
+    /**
+     * See {@link ErrorResponder#enableClientErrorLimit}.
+     */
+    public void enableClientErrorLimit(ClientErrorLimiter limiter, String clientHeader) {
+        responder.enableClientErrorLimit(limiter, clientHeader);
+    }
+
+    /**
+     * The responder deciding this handler's responses, to be closed when the server stops.
+     */
+    public ErrorResponder getResponder() {
+        return responder;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        PrecomputedResponse emergency = responder.emergencyResponse();
+        if (emergency != null) {
+            sendAndClose(exchange, emergency);
+            return;
+        }
+        String uri = pathOf(exchange);
+        String routeKey = responder.tracksRoutes() ? ErrorStormDetector.routeKey(uri) : null;
+        String client = responder.limitsClients() ? clientOf(exchange) : null;
+        PrecomputedResponse refusal = responder.admit(uri, routeKey, client);
+        if (refusal != null) {
+            sendAndClose(exchange, refusal);
+            return;
+        }
+        try {
+            delegate.handle(exchange);
+        } catch (VirtualMachineError e) {
+            PrecomputedResponse fatal = exchange.getResponseCode() == -1 ? responder.onFatalError(e) : null;
+            if (fatal == null) {
+                throw e;
+            }
+            sendAndClose(exchange, fatal);
+            return;
+        } catch (Exception e) {
+            try {
+                PrecomputedResponse response = responder.respond(e, uri, routeKey, client);
+                // once headers are on the wire, all that is left is to cut the response short
+                if (exchange.getResponseCode() == -1) {
+                    send(exchange, response);
+                }
+            } finally {
+                exchange.close();
+            }
+            return;
+        }
+        responder.recordSuccess(routeKey);
+    }
+
+    private static void sendAndClose(HttpExchange exchange, PrecomputedResponse response) throws IOException {
+        try {
+            send(exchange, response);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void send(HttpExchange exchange, PrecomputedResponse response) throws IOException {
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("Content-Type", response.getContentType());
+        for (int i = 0; i < response.getHeaderCount(); i++) {
+            headers.set(response.getHeaderName(i), response.getHeaderValue(i));
+        }
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            // no body, and a length would make the server warn
+            exchange.sendResponseHeaders(response.getStatus(), -1);
+            return;
+        }
+        byte[] body = response.getBody();
+        exchange.sendResponseHeaders(response.getStatus(), body.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(body);
+    }
+
+    private static String pathOf(HttpExchange exchange) {
+        String path = exchange.getRequestURI().getRawPath();
+        return path != null ? path : "";
+    }
+
+    private String clientOf(HttpExchange exchange) {
+        String clientHeader = responder.getClientHeader();
+        if (clientHeader != null) {
+            String value = exchange.getRequestHeaders().getFirst(clientHeader);
+            if (value != null) {
+                return value;
+            }
+        }
+        InetSocketAddress address = exchange.getRemoteAddress();
+        if (address == null) {
+            return "";
+        }
+        return address.getAddress() != null ? address.getAddress().getHostAddress() : address.getHostString();
+    }
+}
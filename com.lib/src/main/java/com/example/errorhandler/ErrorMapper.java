@@ -2,4 +2,14 @@ package com.example.errorhandler;
 
 public interface ErrorMapper {
     ErrorPayload toError(Throwable t);
+
+    /**
+     * Returns only the code {@code t} maps to, or {@code null} if the payload carries a code
+     * string unknown to {@link ErrorCode}. Used where the message is not needed; implementations
+     * should override it when that saves rendering.
+     */
+    default ErrorCode toErrorCode(Throwable t) {
+        ErrorPayload payload = toError(t);
+        return payload.errorCode() != null ? payload.errorCode() : ErrorCode.fromCode(payload.code());
+    }
 }
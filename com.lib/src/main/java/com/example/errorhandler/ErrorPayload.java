@@ -1,4 +1,41 @@
 package com.example.errorhandler;
 
-public record ErrorPayload(String code, String message) {
+import java.util.Objects;
+
+/**
+ * Payloads are equal when their code strings and messages are; {@code errorCode} only records
+ * where the payload came from, so equality matches payloads created from a code string.
+ *
+ * @param errorCode the code the payload was built from, or {@code null} for payloads created
+ *                  from a plain code string by a custom mapper
+ */
+public record ErrorPayload(String code, String message, ErrorCode errorCode) {
+
+    public ErrorPayload(String code, String message) {
+        this(code, message, null);
+    }
+
+    public ErrorPayload(ErrorCode errorCode, String message) {
+        this(errorCode.getCode(), message, errorCode);
+    }
+
+    /**
+     * Whether the message is the code's {@linkplain ErrorCode#getDefaultMessage() default
+     * message}, i.e. it does not depend on the exception and the rendered response can be shared.
+     */
+    public boolean isTemplateMessage() {
+        return errorCode != null && errorCode.getDefaultMessage().equals(message);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ErrorPayload other
+                && Objects.equals(code, other.code)
+                && Objects.equals(message, other.message);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(code, message);
+    }
 }
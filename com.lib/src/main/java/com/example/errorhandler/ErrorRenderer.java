@@ -0,0 +1,178 @@
+package com.example.errorhandler;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Renders error bodies as UTF-8 JSON into caller-supplied {@link ByteBuffer}s and
+ * {@link WritableByteChannel}s, for servers that do not use the Servlet API.
+ * {@link ErrorResponder} renders through this class too, so every integration produces
+ * the same bytes at the same cost.
+ * <p>
+ * A code with arguments is rendered straight into the buffer: neither the message nor string
+ * and integer arguments are turned into intermediate strings. Other arguments are converted
+ * with {@code toString}, as {@code String.format} would. Heap buffers are written in place;
+ * direct buffers receive a copy of the encoded body.
+ */
+public final class ErrorRenderer {
+
+    private static final byte[][] TEMPLATE_BODIES = templateBodies();
+
+    private ErrorRenderer() {
+    }
+
+    /**
+     * Returns the response body for {@code payload}.
+     */
+    public static byte[] encode(ErrorPayload payload) {
+        return JsonErrorWriter.encode(payload);
+    }
+
+    /**
+     * Returns the response body for {@code payload} with a retry hint.
+     */
+    public static byte[] encode(ErrorPayload payload, long retryAfterSeconds) {
+        return JsonErrorWriter.encode(payload, retryAfterSeconds);
+    }
+
+    /**
+     * Number of bytes {@link #render(ErrorPayload, ByteBuffer)} will write.
+     */
+    public static int encodedLength(ErrorPayload payload) {
+        return JsonErrorWriter.encodedLength(payload);
+    }
+
+    /**
+     * Number of bytes {@link #render(ErrorCode, ByteBuffer, Object...)} will write.
+     */
+    public static int encodedLength(ErrorCode code, Object... args) {
+        if (isTemplateOnly(code, args)) {
+            return TEMPLATE_BODIES[code.ordinal()].length;
+        }
+        return JsonErrorWriter.encodedLength(code, MessageTemplate.stableArguments(code.getMessageTemplate(), args));
+    }
+
+    /**
+     * Writes the body for {@code payload} at the buffer's position and advances it.
+     *
+     * @return number of bytes written
+     * @throws BufferOverflowException if the buffer has too little room; nothing is written then
+     */
+    public static int render(ErrorPayload payload, ByteBuffer dst) {
+        int length = JsonErrorWriter.encodedLength(payload);
+        int offset = reserve(dst, length);
+        if (offset < 0) {
+            dst.put(JsonErrorWriter.encode(payload));
+            return length;
+        }
+        JsonErrorWriter.encode(payload, dst.array(), offset);
+        dst.position(dst.position() + length);
+        return length;
+    }
+
+    /**
+     * Writes the body for {@code payload} with a retry hint at the buffer's position and
+     * advances it.
+     *
+     * @return number of bytes written
+     * @throws BufferOverflowException if the buffer has too little room; nothing is written then
+     */
+    public static int render(ErrorPayload payload, long retryAfterSeconds, ByteBuffer dst) {
+        int length = JsonErrorWriter.encodedLength(payload, retryAfterSeconds);
+        int offset = reserve(dst, length);
+        if (offset < 0) {
+            dst.put(JsonErrorWriter.encode(payload, retryAfterSeconds));
+            return length;
+        }
+        JsonErrorWriter.encode(payload, retryAfterSeconds, dst.array(), offset);
+        dst.position(dst.position() + length);
+        return length;
+    }
+
+    /**
+     * Writes the body for {@code code} with its template rendered with {@code args} at the
+     * buffer's position and advances it. Without arguments the code's default message is used,
+     * as for an {@link ErrorCodeException} without arguments.
+     *
+     * @return number of bytes written
+     * @throws BufferOverflowException if the buffer has too little room; nothing is written then
+     */
+    public static int render(ErrorCode code, ByteBuffer dst, Object... args) {
+        if (isTemplateOnly(code, args)) {
+            byte[] body = TEMPLATE_BODIES[code.ordinal()];
+            dst.put(body);
+            return body.length;
+        }
+        Object[] stable = MessageTemplate.stableArguments(code.getMessageTemplate(), args);
+        int length = JsonErrorWriter.encodedLength(code, stable);
+        int offset = reserve(dst, length);
+        if (offset < 0) {
+            byte[] body = new byte[length];
+            JsonErrorWriter.encode(code, stable, body, 0);
+            dst.put(body);
+            return length;
+        }
+        JsonErrorWriter.encode(code, stable, dst.array(), offset);
+        dst.position(dst.position() + length);
+        return length;
+    }
+
+    /**
+     * Writes the body for {@code payload} to a blocking {@code channel}. For non-blocking
+     * channels render into a buffer and write it as the channel becomes ready.
+     *
+     * @return number of bytes written
+     */
+    public static int write(ErrorPayload payload, WritableByteChannel channel) throws IOException {
+        return drain(ByteBuffer.wrap(JsonErrorWriter.encode(payload)), channel);
+    }
+
+    /**
+     * Writes the body for {@code code} with its template rendered with {@code args} to a
+     * blocking {@code channel}.
+     *
+     * @return number of bytes written
+     */
+    public static int write(ErrorCode code, WritableByteChannel channel, Object... args) throws IOException {
+        if (isTemplateOnly(code, args)) {
+            return drain(ByteBuffer.wrap(TEMPLATE_BODIES[code.ordinal()]).asReadOnlyBuffer(), channel);
+        }
+        ByteBuffer body = ByteBuffer.allocate(encodedLength(code, args));
+        render(code, body, args);
+        return drain(body.flip(), channel);
+    }
+
+    private static boolean isTemplateOnly(ErrorCode code, Object[] args) {
+        return args == null || args.length == 0 || !code.getMessageTemplate().hasArguments();
+    }
+
+    /**
+     * Checks that {@code length} bytes fit and returns the array offset to write them at,
+     * or {@code -1} if the buffer has no accessible array.
+     */
+    private static int reserve(ByteBuffer dst, int length) {
+        if (dst.remaining() < length) {
+            throw new BufferOverflowException();
+        }
+        return dst.hasArray() ? dst.arrayOffset() + dst.position() : -1;
+    }
+
+    private static int drain(ByteBuffer body, WritableByteChannel channel) throws IOException {
+        int length = body.remaining();
+        while (body.hasRemaining()) {
+            channel.write(body);
+        }
+        return length;
+    }
+
+    private static byte[][] templateBodies() {
+        ErrorCode[] codes = ErrorCode.values();
+        byte[][] bodies = new byte[codes.length][];
+        for (ErrorCode code : codes) {
+            bodies[code.ordinal()] = JsonErrorWriter.encode(new ErrorPayload(code, code.getDefaultMessage()));
+        }
+        return bodies;
+    }
+}
@@ -0,0 +1,409 @@
+package com.example.errorhandler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides the response to an error without depending on a server API: status, headers and
+ * body, from the mapped payload, the code's status, {@link RetryPolicy} and
+ * {@code Cache-Control} settings, and the state of emergency mode, error storm protection and
+ * the per-client error limit. {@link ErrorHandlingFilter} and {@link ErrorHandlingHttpHandler}
+ * are adapters that describe the request and write the {@link PrecomputedResponse} returned.
+ * <p>
+ * A request is described by its URI, matched against the route prefixes of
+ * {@code Cache-Control} overrides; its route key, the path the error storm detector tracks
+ * (see {@link ErrorStormDetector#routeKey}), or {@code null} when {@link #tracksRoutes()} is
+ * false; and its client, or {@code null} when {@link #limitsClients()} is false.
+ * <p>
+ * Responses whose message is the code's default message are precomputed. Other bodies are
+ * rendered per error; an {@link ErrorCoded} exception resolved by a {@link DefaultErrorMapper}
+ * is encoded straight from its template arguments, without creating the message, unless
+ * errors are published to an {@link ErrorEventPipeline}, whose events carry the payload.
+ * Configure before the first request.
+ */
+public class ErrorResponder implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ErrorResponder.class);
+    private static final int FALLBACK_STATUS = 500;
+    private static final String VM_ERROR_REASON = "VirtualMachineError reached the error handler";
+
+    private final ErrorMapper mapper;
+
+    /**
+     * HTTP status per code ordinal, resolved once from the {@link StatusResolver}.
+     */
+    private final int[] statuses;
+
+    /**
+     * Rendered responses for payloads whose message is the code's default message, per route,
+     * rebuilt whenever a header setting changes.
+     */
+    private volatile ResponseTables responses;
+
+    /**
+     * Log policy per code ordinal; defaults follow the resolved status.
+     */
+    private final LogPolicy[] logPolicies;
+
+    private SaturationSignal saturationSignal = SaturationSignal.NONE;
+
+    private ThrottledErrorLogger errorLogger = new ThrottledErrorLogger(log);
+
+    /**
+     * Background pipeline for logging and export, or {@code null} to log on the request thread.
+     */
+    private volatile ErrorEventPipeline eventPipeline;
+
+    /**
+     * Memory pressure tracking, or {@code null} to let {@link Error}s propagate.
+     */
+    private volatile EmergencyMode emergencyMode;
+
+    /**
+     * Per-route error rate tracking, or {@code null} to handle every error in full.
+     */
+    private volatile ErrorStormDetector stormDetector;
+    private boolean stormShortCircuit;
+    private int stormLogSampleRate = 1;
+    private final AtomicLong stormLogSampler = new AtomicLong();
+
+    /**
+     * Per-client error counts, or {@code null} to serve every client.
+     */
+    private volatile ClientErrorLimiter clientLimiter;
+    private String clientHeader;
+
+    public ErrorResponder(ErrorMapper mapper) {
+        this(mapper, StatusResolver.DEFAULT);
+    }
+
+    public ErrorResponder(ErrorMapper mapper, StatusResolver statusResolver) {
+        this.mapper = mapper;
+        this.statuses = ResponseTable.resolveStatuses(statusResolver);
+        this.responses = ResponseTables.of(statuses);
+        this.logPolicies = new LogPolicy[statuses.length];
+        for (int i = 0; i < statuses.length; i++) {
+            logPolicies[i] = LogPolicy.forStatus(statuses[i]);
+        }
+    }
+
+    /**
+     * Sets how errors of one code are logged.
+     */
+    public void setLogPolicy(ErrorCode code, LogPolicy policy) {
+        logPolicies[code.ordinal()] = policy;
+    }
+
+    /**
+     * Sets the {@code Cache-Control} header sent with errors of one code, or removes it when
+     * {@code value} is {@code null}. By default {@code 404} and {@code 410} responses may be
+     * cached by the client for a minute ({@code private, max-age=60}) and all others are
+     * {@code no-store}. Routes keep their own overrides and take this value for other codes,
+     * whenever it is set.
+     */
+    public void setCacheControl(ErrorCode code, String value) {
+        responses = responses.withCacheControl(code, value);
+    }
+
+    /**
+     * Overrides the {@code Cache-Control} header of one code for request URIs starting with
+     * {@code routePrefix}; the longest matching prefix wins. Other codes on the route keep
+     * the headers set with {@link #setCacheControl(ErrorCode, String)}, before or after this
+     * call.
+     */
+    public void setCacheControl(String routePrefix, ErrorCode code, String value) {
+        responses = responses.withCacheControl(routePrefix, code, value);
+    }
+
+    /**
+     * Sets the load signal that scales the {@code Retry-After} delay of retryable codes
+     * between the bounds of their {@link RetryPolicy}. When error storm protection is enabled,
+     * the route's error rate counts as well, whichever is higher.
+     */
+    public void setSaturationSignal(SaturationSignal saturationSignal) {
+        this.saturationSignal = saturationSignal;
+    }
+
+    public void setErrorLogger(ThrottledErrorLogger errorLogger) {
+        this.errorLogger = errorLogger;
+    }
+
+    /**
+     * Moves logging, and any {@code exporters}, to a background thread fed through a bounded
+     * buffer of {@code capacity} events. The pipeline is closed, after handling the buffered
+     * events, in {@link #close()}.
+     */
+    public void enableAsyncErrorEvents(int capacity, OverflowPolicy overflowPolicy, ErrorEventHandler... exporters) {
+        List<ErrorEventHandler> handlers = new ArrayList<>();
+        handlers.add(event -> errorLogger.log(event.error(), event.logPolicy()));
+        handlers.addAll(Arrays.asList(exporters));
+        ErrorEventPipeline previous = eventPipeline;
+        eventPipeline = new ErrorEventPipeline(capacity, overflowPolicy, handlers);
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    /**
+     * Answers every request with a preallocated 503 while the JVM is short of memory: after a
+     * {@link VirtualMachineError} is reported through {@link #onFatalError}, and while the
+     * heap stays above the mode's threshold after garbage collection. Neither the mapper nor
+     * the error logger runs in that state. The mode is closed in {@link #close()}.
+     */
+    public void enableEmergencyMode(EmergencyMode emergencyMode) {
+        EmergencyMode previous = this.emergencyMode;
+        this.emergencyMode = emergencyMode;
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    /**
+     * Tracks the error rate per route key with {@code detector}. While a route is degraded,
+     * its errors are answered with the precomputed response of their code, without rendering
+     * a message, and only one in {@code logSampleRate} is logged. With {@code shortCircuit},
+     * most requests to a degraded route are refused by {@link #admit}; a few are let through
+     * so recovery is noticed.
+     */
+    public void enableErrorStormProtection(ErrorStormDetector detector, boolean shortCircuit, int logSampleRate) {
+        if (logSampleRate < 1) {
+            throw new IllegalArgumentException("logSampleRate must be positive: " + logSampleRate);
+        }
+        this.stormShortCircuit = shortCircuit;
+        this.stormLogSampleRate = logSampleRate;
+        responses = responses.withShedRetry(detector.getRecoverySeconds());
+        this.stormDetector = detector;
+    }
+
+    /**
+     * Counts client errors (4xx responses other than 429) per client with {@code limiter} and
+     * refuses clients over the limit with a precomputed 429 in {@link #admit}. Clients are told
+     * apart by the value of {@code clientHeader}, such as {@code X-Forwarded-For} behind a
+     * proxy, or by remote address when it is {@code null} or absent from the request.
+     */
+    public void enableClientErrorLimit(ClientErrorLimiter limiter, String clientHeader) {
+        this.clientHeader = clientHeader;
+        responses = responses.withLimitedRetry(limiter.getRetryAfterSeconds());
+        this.clientLimiter = limiter;
+    }
+
+    /**
+     * Whether requests must be described by their route key.
+     */
+    public boolean tracksRoutes() {
+        return stormDetector != null;
+    }
+
+    /**
+     * Whether requests must be described by their client.
+     */
+    public boolean limitsClients() {
+        return clientLimiter != null;
+    }
+
+    /**
+     * The request header identifying the client, or {@code null} to use the remote address.
+     */
+    public String getClientHeader() {
+        return clientHeader;
+    }
+
+    /**
+     * The response to send to every request while emergency mode is active, or {@code null}.
+     */
+    public PrecomputedResponse emergencyResponse() {
+        EmergencyMode emergency = emergencyMode;
+        return emergency != null && emergency.isActive() ? emergency.getResponse() : null;
+    }
+
+    /**
+     * Enters emergency mode after {@code error} reached the adapter and returns its response,
+     * or returns {@code null} when emergency mode is not enabled and the error should
+     * propagate.
+     */
+    public PrecomputedResponse onFatalError(VirtualMachineError error) {
+        EmergencyMode emergency = emergencyMode;
+        if (emergency == null) {
+            return null;
+        }
+        emergency.trigger(VM_ERROR_REASON);
+        return emergency.getResponse();
+    }
+
+    /**
+     * Returns the response that answers a request before the application runs, a 429 for a
+     * client over its error limit or a 503 for a degraded route being shed, or {@code null}
+     * to let the request through.
+     */
+    public PrecomputedResponse admit(String uri, String routeKey, String client) {
+        ClientErrorLimiter limiter = clientLimiter;
+        if (limiter != null && client != null && limiter.isLimited(client)) {
+            return responses.forUri(uri).limited();
+        }
+        ErrorStormDetector.Route route = routeOf(routeKey);
+        if (route != null && stormShortCircuit && route.isDegraded() && !route.admitProbe()) {
+            return responses.forUri(uri).shed();
+        }
+        return null;
+    }
+
+    /**
+     * Counts a request the application handled without throwing.
+     */
+    public void recordSuccess(String routeKey) {
+        ErrorStormDetector.Route route = routeOf(routeKey);
+        if (route != null) {
+            route.record(false);
+        }
+    }
+
+    /**
+     * Returns the response to {@code ex}, thrown by the application, and counts the error
+     * against the route and, for client errors, the client.
+     */
+    public PrecomputedResponse respond(Throwable ex, String uri, String routeKey, String client) {
+        ErrorStormDetector.Route route = routeOf(routeKey);
+        PrecomputedResponse response;
+        if (route != null) {
+            route.record(true);
+        }
+        if (route != null && route.isDegraded()) {
+            response = respondDegraded(ex, uri, route);
+        } else {
+            response = respond(ex, uri, route);
+        }
+        ClientErrorLimiter limiter = clientLimiter;
+        if (limiter != null && client != null && isClientError(response.getStatus())) {
+            limiter.recordError(client);
+        }
+        return response;
+    }
+
+    /**
+     * Returns the response to {@code ex} without counting it, for errors reported after the
+     * request left the application, such as async timeouts.
+     */
+    public PrecomputedResponse render(Throwable ex, String uri, String routeKey) {
+        return respond(ex, uri, routeOf(routeKey));
+    }
+
+    private PrecomputedResponse respond(Throwable ex, String uri, ErrorStormDetector.Route route) {
+        ResponseTable table = responses.forUri(uri).table();
+        ErrorCoded coded = eventPipeline == null ? codedOf(ex) : null;
+        if (coded != null) {
+            ErrorCode code = coded.getErrorCode();
+            errorLogger.log(ex, logPolicies[code.ordinal()]);
+            Object[] args = coded.getErrorArguments();
+            MessageTemplate template = code.getMessageTemplate();
+            if (!template.hasArguments() || args == null || args.length == 0) {
+                return templateResponse(code, table, route);
+            }
+            long delay = code.isRetryable() ? retryDelaySeconds(code, route) : -1;
+            byte[] body = JsonErrorWriter.encode(code, MessageTemplate.stableArguments(template, args), delay);
+            return PrecomputedResponse.rendered(statuses[code.ordinal()], body, delay, table.cacheControl(code));
+        }
+        ErrorPayload payload = mapper.toError(ex);
+        ErrorCode code = codeOf(payload);
+        report(ex, payload, code != null ? logPolicies[code.ordinal()] : LogPolicy.SERVER_ERROR);
+        ErrorCode source = payload.errorCode();
+        // the shared response carries the code's own string, which a custom mapper may not use
+        if (source != null && payload.isTemplateMessage() && source.getCode().equals(payload.code())) {
+            return templateResponse(source, table, route);
+        }
+        if (code == null) {
+            return PrecomputedResponse.rendered(FALLBACK_STATUS, ErrorRenderer.encode(payload), -1, null);
+        }
+        long delay = code.isRetryable() ? retryDelaySeconds(code, route) : -1;
+        byte[] body = delay >= 0 ? ErrorRenderer.encode(payload, delay) : ErrorRenderer.encode(payload);
+        return PrecomputedResponse.rendered(statuses[code.ordinal()], body, delay, table.cacheControl(code));
+    }
+
+    /**
+     * Error path for a route in an error storm: resolves only the code, serves its
+     * precomputed response and reports a sample of the errors.
+     */
+    private PrecomputedResponse respondDegraded(Throwable ex, String uri, ErrorStormDetector.Route route) {
+        ErrorCode code = mapper.toErrorCode(ex);
+        if (code == null) {
+            code = ErrorCode.UNKNOWN_ERROR;
+        }
+        if (stormLogSampler.getAndIncrement() % stormLogSampleRate == 0) {
+            report(ex, new ErrorPayload(code, code.getDefaultMessage()), logPolicies[code.ordinal()]);
+        }
+        return templateResponse(code, responses.forUri(uri).table(), route);
+    }
+
+    private PrecomputedResponse templateResponse(ErrorCode code, ResponseTable table, ErrorStormDetector.Route route) {
+        return code.isRetryable() ? table.retry(code, retryDelaySeconds(code, route)) : table.template(code);
+    }
+
+    private long retryDelaySeconds(ErrorCode code, ErrorStormDetector.Route route) {
+        double saturation = saturationSignal.saturation();
+        if (route != null) {
+            saturation = Math.max(saturation, route.getErrorRate());
+        }
+        return code.getRetryPolicy().jitteredDelaySeconds(saturation, ThreadLocalRandom.current());
+    }
+
+    private void report(Throwable ex, ErrorPayload payload, LogPolicy logPolicy) {
+        ErrorEventPipeline pipeline = eventPipeline;
+        if (pipeline != null) {
+            pipeline.publish(new ErrorEvent(ex, payload, logPolicy, System.currentTimeMillis()));
+        } else {
+            errorLogger.log(ex, logPolicy);
+        }
+    }
+
+    private ErrorStormDetector.Route routeOf(String routeKey) {
+        ErrorStormDetector detector = stormDetector;
+        return detector != null && routeKey != null ? detector.route(routeKey) : null;
+    }
+
+    /**
+     * The exception to encode from its arguments, or {@code null} to go through the mapper.
+     * Only an unmodified {@link DefaultErrorMapper} is known to render coded exceptions from
+     * their arguments; subclasses and other mappers may not.
+     */
+    private ErrorCoded codedOf(Throwable ex) {
+        return mapper.getClass() == DefaultErrorMapper.class ? ((DefaultErrorMapper) mapper).codedOf(ex) : null;
+    }
+
+    /**
+     * Stops the event pipeline, after handling the buffered events, and closes emergency mode.
+     */
+    @Override
+    public void close() {
+        ErrorEventPipeline pipeline = eventPipeline;
+        if (pipeline != null) {
+            eventPipeline = null;
+            if (!pipeline.close(Duration.ofSeconds(5))) {
+                log.warn("Error event pipeline did not drain within 5 s");
+            }
+        }
+        EmergencyMode emergency = emergencyMode;
+        if (emergency != null) {
+            emergencyMode = null;
+            emergency.close();
+        }
+    }
+
+    private static boolean isClientError(int status) {
+        return status >= 400 && status < 500 && status != 429;
+    }
+
+    private static ErrorCode codeOf(ErrorPayload payload) {
+        ErrorCode code = payload.errorCode();
+        if (code == null) {
+            // payload from a custom mapper that only knows the code string
+            code = ErrorCode.fromCode(payload.code());
+        }
+        return code;
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.errorhandler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Tracks the error rate per route over a sliding window and flags routes that are failing.
+ * <p>
+ * The window is split into {@value #BUCKETS} buckets of request and error counts. A route
+ * becomes degraded once at least {@code minRequests} requests were seen in the window and
+ * {@code enterPercent} of them failed; it recovers when the rate drops below
+ * {@code exitPercent}, or a whole window passes without traffic. The state is re-evaluated
+ * only by the thread that rolls over a bucket, so recording costs two atomic increments.
+ * <p>
+ * Routes are kept in a fixed open-addressing table, so memory does not grow with the number
+ * of routes. Each slot holds one route key; a route without traffic for a whole window gives
+ * its slot up to the next new route probing it. When every slot a route may use belongs to an
+ * active route, the route is not tracked.
+ */
+public final class ErrorStormDetector {
+
+    private static final Logger log = LoggerFactory.getLogger(ErrorStormDetector.class);
+
+    public static final Duration DEFAULT_WINDOW = Duration.ofSeconds(10);
+    public static final int DEFAULT_ENTER_PERCENT = 50;
+    public static final int DEFAULT_EXIT_PERCENT = 20;
+    public static final int DEFAULT_MIN_REQUESTS = 20;
+
+    static final int BUCKETS = 10;
+    private static final int SLOTS = 1024;
+    /** Slots a route may occupy, starting at its hash. */
+    private static final int MAX_PROBES = 8;
+    /** While short-circuiting, one request in this many is let through to measure recovery. */
+    private static final int PROBE_RATE = 10;
+
+    private final long bucketNanos;
+    private final int enterPercent;
+    private final int exitPercent;
+    private final int minRequests;
+    private final LongSupplier clock;
+    private final AtomicReferenceArray<Route> routes = new AtomicReferenceArray<>(SLOTS);
+
+    public ErrorStormDetector() {
+        this(DEFAULT_WINDOW, DEFAULT_ENTER_PERCENT, DEFAULT_EXIT_PERCENT, DEFAULT_MIN_REQUESTS);
+    }
+
+    /**
+     * @param window       span over which the error rate is measured
+     * @param enterPercent error rate, in percent, at which a route becomes degraded
+     * @param exitPercent  error rate below which a degraded route recovers; lower than
+     *                     {@code enterPercent} so the state does not flap
+     * @param minRequests  requests needed in the window before the rate is trusted
+     */
+    public ErrorStormDetector(Duration window, int enterPercent, int exitPercent, int minRequests) {
+        this(window, enterPercent, exitPercent, minRequests, System::nanoTime);
+    }
+
+    ErrorStormDetector(Duration window, int enterPercent, int exitPercent, int minRequests, LongSupplier clock) {
+        if (enterPercent < 1 || enterPercent > 100) {
+            throw new IllegalArgumentException("enterPercent must be between 1 and 100: " + enterPercent);
+        }
+        if (exitPercent < 0 || exitPercent > enterPercent) {
+            throw new IllegalArgumentException("exitPercent must be between 0 and enterPercent: " + exitPercent);
+        }
+        if (minRequests < 1) {
+            throw new IllegalArgumentException("minRequests must be positive: " + minRequests);
+        }
+        this.bucketNanos = Math.max(1, window.toNanos() / BUCKETS);
+        this.enterPercent = enterPercent;
+        this.exitPercent = exitPercent;
+        this.minRequests = minRequests;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the tracker for {@code route}, or {@code null} if the route is not tracked because
+     * all of its slots are held by routes that saw traffic within the window.
+     */
+    Route route(String route) {
+        int h = route.hashCode();
+        h ^= h >>> 16;
+        for (int probe = 0; probe < MAX_PROBES; probe++) {
+            int index = (h + probe) & (SLOTS - 1);
+            Route current = routes.get(index);
+            if (current == null) {
+                Route created = new Route(route);
+                if (routes.compareAndSet(index, null, created)) {
+                    return created;
+                }
+                current = routes.get(index);
+            }
+            if (current.key.equals(route)) {
+                return current;
+            }
+        }
+        long epoch = clock.getAsLong() / bucketNanos;
+        for (int probe = 0; probe < MAX_PROBES; probe++) {
+            int index = (h + probe) & (SLOTS - 1);
+            Route current = routes.get(index);
+            if (current.isIdle(epoch)) {
+                Route created = new Route(route);
+                if (routes.compareAndSet(index, current, created)) {
+                    return created;
+                }
+            } else if (current.key.equals(route)) {
+                return current;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Collapses the path segments of {@code path} that contain a digit to {@code *}, so path
+     * parameters such as {@code /orders/42} and {@code /orders/43} count as one route. Returns
+     * {@code path} itself when no segment does.
+     */
+    static String routeKey(String path) {
+        StringBuilder key = null;
+        int start = 0;
+        while (start < path.length()) {
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = path.length();
+            }
+            boolean parameter = false;
+            for (int i = start; i < end && !parameter; i++) {
+                parameter = Character.isDigit(path.charAt(i));
+            }
+            if (parameter && key == null) {
+                key = new StringBuilder(path.length()).append(path, 0, start);
+            }
+            if (key != null) {
+                if (parameter) {
+                    key.append('*');
+                } else {
+                    key.append(path, start, end);
+                }
+                if (end < path.length()) {
+                    key.append('/');
+                }
+            }
+            start = end + 1;
+        }
+        return key != null ? key.toString() : path;
+    }
+
+    /**
+     * Shortest time after which a degraded route may have recovered, in whole seconds.
+     */
+    long getRecoverySeconds() {
+        return Math.max(1, Duration.ofNanos(bucketNanos).toSeconds());
+    }
+
+    final class Route {
+
+        private final String key;
+        private final AtomicLongArray epochs = new AtomicLongArray(BUCKETS);
+        private final AtomicLongArray requests = new AtomicLongArray(BUCKETS);
+        private final AtomicLongArray errors = new AtomicLongArray(BUCKETS);
+        private final AtomicLong admitted = new AtomicLong();
+        private volatile boolean degraded;
+        private volatile double errorRate;
+
+        private Route(String key) {
+            this.key = key;
+            for (int i = 0; i < BUCKETS; i++) {
+                epochs.set(i, Long.MIN_VALUE);
+            }
+        }
+
+        boolean isDegraded() {
+            return degraded;
+        }
+
+        private boolean isIdle(long currentEpoch) {
+            if (degraded) {
+                return false;
+            }
+            for (int i = 0; i < BUCKETS; i++) {
+                if (epochs.get(i) > currentEpoch - BUCKETS) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Share of failed requests in the window as of the last completed bucket.
+         */
+        double getErrorRate() {
+            return errorRate;
+        }
+
+        /**
+         * Whether a request to this degraded route should still reach the application.
+         */
+        boolean admitProbe() {
+            return admitted.getAndIncrement() % PROBE_RATE == 0;
+        }
+
+        void record(boolean failed) {
+            long epoch = clock.getAsLong() / bucketNanos;
+            int index = (int) Math.floorMod(epoch, (long) BUCKETS);
+            long seen = epochs.get(index);
+            if (seen != epoch && epochs.compareAndSet(index, seen, epoch)) {
+                // this thread rolled the bucket over: clear it and judge the completed ones
+                requests.set(index, 0);
+                errors.set(index, 0);
+                evaluate(epoch);
+            }
+            requests.incrementAndGet(index);
+            if (failed) {
+                errors.incrementAndGet(index);
+            }
+        }
+
+        private void evaluate(long currentEpoch) {
+            long total = 0;
+            long failed = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                long epoch = epochs.get(i);
+                if (epoch != currentEpoch && epoch > currentEpoch - BUCKETS) {
+                    total += requests.get(i);
+                    failed += errors.get(i);
+                }
+            }
+            errorRate = total == 0 ? 0 : (double) failed / total;
+            if (!degraded) {
+                if (total >= minRequests && failed * 100 >= enterPercent * total) {
+                    degraded = true;
+                    log.warn("Error storm: {} of {} requests failed, serving canned error responses", failed, total);
+                }
+            } else if (total == 0 || failed * 100 < exitPercent * total) {
+                degraded = false;
+                log.info("Error storm over: {} of {} requests failed", failed, total);
+            }
+        }
+    }
+}
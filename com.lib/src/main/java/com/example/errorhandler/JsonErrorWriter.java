@@ -0,0 +1,293 @@
+package com.example.errorhandler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes an {@link ErrorPayload} as a UTF-8 JSON object of the form
+ * {@code {"code":"...","message":"..."}}.
+ * <p>
+ * The encoded length is computed up front so the body fits into a single exactly-sized
+ * array and can be sent with a precise {@code Content-Length}. Strings are escaped per
+ * RFC 8259; runs of plain ASCII are copied without further checks.
+ */
+public final class JsonErrorWriter {
+
+    public static final String CONTENT_TYPE = "application/json;charset=UTF-8";
+
+    private static final byte[] CODE_PREFIX = ascii("{\"code\":\"");
+    private static final byte[] MESSAGE_PREFIX = ascii("\",\"message\":\"");
+    private static final byte[] NULL_MESSAGE_SUFFIX = ascii("\",\"message\":null}");
+    private static final byte[] SUFFIX = ascii("\"}");
+    private static final byte[] RETRY_HINT = ascii(",\"retryable\":true,\"retryAfterSeconds\":");
+    private static final byte[] HEX = ascii("0123456789abcdef");
+
+    // valid in JSON but not in JavaScript string literals, so escaped as well
+    private static final char LINE_SEPARATOR = 0x2028;
+    private static final char PARAGRAPH_SEPARATOR = 0x2029;
+
+    private JsonErrorWriter() {
+    }
+
+    /**
+     * Returns the complete response body for {@code payload}.
+     */
+    public static byte[] encode(ErrorPayload payload) {
+        byte[] body = new byte[encodedLength(payload)];
+        encode(payload, body, 0);
+        return body;
+    }
+
+    /**
+     * Returns the response body for {@code payload} with a retry hint, i.e. the object gains
+     * {@code "retryable":true,"retryAfterSeconds":<retryAfterSeconds>}.
+     */
+    public static byte[] encode(ErrorPayload payload, long retryAfterSeconds) {
+        byte[] body = new byte[encodedLength(payload, retryAfterSeconds)];
+        encode(payload, retryAfterSeconds, body, 0);
+        return body;
+    }
+
+    /**
+     * Writes the response body for {@code payload} to {@code out} and returns the number of
+     * bytes written.
+     */
+    public static int write(ErrorPayload payload, OutputStream out) throws IOException {
+        byte[] body = encode(payload);
+        out.write(body);
+        return body.length;
+    }
+
+    /**
+     * Number of bytes {@link #encode(ErrorPayload, byte[], int)} will produce.
+     */
+    public static int encodedLength(ErrorPayload payload) {
+        int length = CODE_PREFIX.length + escapedLength(payload.code());
+        if (payload.message() == null) {
+            return length + NULL_MESSAGE_SUFFIX.length;
+        }
+        return length + MESSAGE_PREFIX.length + escapedLength(payload.message()) + SUFFIX.length;
+    }
+
+    /**
+     * Encodes {@code payload} into {@code dst} starting at {@code offset} and returns the
+     * position after the last byte written.
+     */
+    public static int encode(ErrorPayload payload, byte[] dst, int offset) {
+        int pos = put(CODE_PREFIX, dst, offset);
+        pos = putEscaped(payload.code(), dst, pos);
+        if (payload.message() == null) {
+            return put(NULL_MESSAGE_SUFFIX, dst, pos);
+        }
+        pos = put(MESSAGE_PREFIX, dst, pos);
+        pos = putEscaped(payload.message(), dst, pos);
+        return put(SUFFIX, dst, pos);
+    }
+
+    /**
+     * Number of bytes {@link #encode(ErrorPayload, long, byte[], int)} will produce.
+     */
+    public static int encodedLength(ErrorPayload payload, long retryAfterSeconds) {
+        requireRetryAfter(retryAfterSeconds);
+        return encodedLength(payload) + RETRY_HINT.length + decimalLength(retryAfterSeconds);
+    }
+
+    /**
+     * Encodes {@code payload} with a retry hint into {@code dst} starting at {@code offset}
+     * and returns the position after the last byte written.
+     */
+    public static int encode(ErrorPayload payload, long retryAfterSeconds, byte[] dst, int offset) {
+        requireRetryAfter(retryAfterSeconds);
+        // drop the closing brace, append the hint and close again
+        int pos = encode(payload, dst, offset) - 1;
+        pos = put(RETRY_HINT, dst, pos);
+        pos = putDecimal(retryAfterSeconds, dst, pos);
+        dst[pos++] = '}';
+        return pos;
+    }
+
+    /**
+     * Number of bytes {@link #encode(ErrorCode, Object[], byte[], int)} will produce.
+     * {@code args} must have passed through {@link MessageTemplate#stableArguments}.
+     */
+    static int encodedLength(ErrorCode code, Object[] args) {
+        return CODE_PREFIX.length + escapedLength(code.getCode()) + MESSAGE_PREFIX.length
+                + code.getMessageTemplate().escapedLength(args) + SUFFIX.length;
+    }
+
+    /**
+     * Encodes the payload {@code code} renders with {@code args} without creating the
+     * message. {@code args} must have passed through {@link MessageTemplate#stableArguments}.
+     */
+    static int encode(ErrorCode code, Object[] args, byte[] dst, int offset) {
+        int pos = put(CODE_PREFIX, dst, offset);
+        pos = putEscaped(code.getCode(), dst, pos);
+        pos = put(MESSAGE_PREFIX, dst, pos);
+        pos = code.getMessageTemplate().encodeEscaped(args, dst, pos);
+        return put(SUFFIX, dst, pos);
+    }
+
+    /**
+     * Returns the body {@code code} renders with {@code args}, with a retry hint when
+     * {@code retryAfterSeconds} is not negative. {@code args} must have passed through
+     * {@link MessageTemplate#stableArguments}.
+     */
+    static byte[] encode(ErrorCode code, Object[] args, long retryAfterSeconds) {
+        int length = encodedLength(code, args);
+        if (retryAfterSeconds < 0) {
+            byte[] body = new byte[length];
+            encode(code, args, body, 0);
+            return body;
+        }
+        byte[] body = new byte[length + RETRY_HINT.length + decimalLength(retryAfterSeconds)];
+        // drop the closing brace, append the hint and close again
+        int pos = encode(code, args, body, 0) - 1;
+        pos = put(RETRY_HINT, body, pos);
+        pos = putDecimal(retryAfterSeconds, body, pos);
+        body[pos] = '}';
+        return body;
+    }
+
+    private static void requireRetryAfter(long retryAfterSeconds) {
+        if (retryAfterSeconds < 0) {
+            throw new IllegalArgumentException("retryAfterSeconds must not be negative: " + retryAfterSeconds);
+        }
+    }
+
+    static int decimalLength(long value) {
+        // count on the negative side, which also holds Long.MIN_VALUE
+        long n = value < 0 ? value : -value;
+        int length = value < 0 ? 2 : 1;
+        while (n <= -10) {
+            n /= 10;
+            length++;
+        }
+        return length;
+    }
+
+    static int putDecimal(long value, byte[] dst, int pos) {
+        int end = pos + decimalLength(value);
+        long n = value < 0 ? value : -value;
+        int i = end;
+        do {
+            dst[--i] = (byte) ('0' - n % 10);
+            n /= 10;
+        } while (n != 0);
+        if (value < 0) {
+            dst[--i] = '-';
+        }
+        return end;
+    }
+
+    static int escapedLength(String s) {
+        int length = 0;
+        int n = s.length();
+        for (int i = 0; i < n; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                length += plain(c) ? 1 : escapeLength(c);
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (c == LINE_SEPARATOR || c == PARAGRAPH_SEPARATOR) {
+                length += 6;
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length += 1;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    static int putEscaped(String s, byte[] dst, int pos) {
+        int n = s.length();
+        int i = 0;
+        while (i < n) {
+            // ASCII fast path
+            char c;
+            while (i < n && (c = s.charAt(i)) < 0x80 && plain(c)) {
+                dst[pos++] = (byte) c;
+                i++;
+            }
+            if (i == n) {
+                break;
+            }
+            c = s.charAt(i++);
+            if (c < 0x80) {
+                pos = putEscape(c, dst, pos);
+            } else if (c < 0x800) {
+                dst[pos++] = (byte) (0xC0 | (c >> 6));
+                dst[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (c == LINE_SEPARATOR || c == PARAGRAPH_SEPARATOR) {
+                pos = putUnicodeEscape(c, dst, pos);
+            } else if (Character.isHighSurrogate(c) && i < n && Character.isLowSurrogate(s.charAt(i))) {
+                int cp = Character.toCodePoint(c, s.charAt(i++));
+                dst[pos++] = (byte) (0xF0 | (cp >> 18));
+                dst[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                dst[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                dst[pos++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // unpaired surrogate, replaced the same way String.getBytes(UTF_8) does
+                dst[pos++] = '?';
+            } else {
+                dst[pos++] = (byte) (0xE0 | (c >> 12));
+                dst[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                dst[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return pos;
+    }
+
+    private static boolean plain(char c) {
+        return c >= 0x20 && c != '"' && c != '\\';
+    }
+
+    private static int escapeLength(char c) {
+        return switch (c) {
+            case '"', '\\', '\b', '\f', '\n', '\r', '\t' -> 2;
+            default -> 6;
+        };
+    }
+
+    private static int putEscape(char c, byte[] dst, int pos) {
+        char shorthand;
+        switch (c) {
+            case '"' -> shorthand = '"';
+            case '\\' -> shorthand = '\\';
+            case '\b' -> shorthand = 'b';
+            case '\f' -> shorthand = 'f';
+            case '\n' -> shorthand = 'n';
+            case '\r' -> shorthand = 'r';
+            case '\t' -> shorthand = 't';
+            default -> {
+                return putUnicodeEscape(c, dst, pos);
+            }
+        }
+        dst[pos++] = '\\';
+        dst[pos++] = (byte) shorthand;
+        return pos;
+    }
+
+    private static int putUnicodeEscape(char c, byte[] dst, int pos) {
+        dst[pos++] = '\\';
+        dst[pos++] = 'u';
+        dst[pos++] = HEX[(c >> 12) & 0xF];
+        dst[pos++] = HEX[(c >> 8) & 0xF];
+        dst[pos++] = HEX[(c >> 4) & 0xF];
+        dst[pos++] = HEX[c & 0xF];
+        return pos;
+    }
+
+    static int put(byte[] fragment, byte[] dst, int pos) {
+        System.arraycopy(fragment, 0, dst, pos, fragment.length);
+        return pos + fragment.length;
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
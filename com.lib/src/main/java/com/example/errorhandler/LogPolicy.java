@@ -0,0 +1,54 @@
+package com.example.errorhandler;
+
+import org.slf4j.event.Level;
+
+import java.util.Locale;
+
+/**
+ * How {@link ErrorHandlingFilter} logs errors of one {@link ErrorCode}: at which level, with
+ * or without stack trace, or not at all.
+ *
+ * @param level      the log level, or {@code null} to not log at all
+ * @param stackTrace whether the first occurrence of an error is logged with its stack trace
+ */
+public record LogPolicy(Level level, boolean stackTrace) {
+
+    public static final LogPolicy OFF = new LogPolicy(null, false);
+
+    /** Server-side failures: full stack trace at ERROR. */
+    public static final LogPolicy SERVER_ERROR = new LogPolicy(Level.ERROR, true);
+
+    /** Client-caused failures: a one-line WARN without stack trace. */
+    public static final LogPolicy CLIENT_ERROR = new LogPolicy(Level.WARN, false);
+
+    public boolean isEnabled() {
+        return level != null;
+    }
+
+    /**
+     * Default policy for a response status: {@link #CLIENT_ERROR} for 4xx, otherwise
+     * {@link #SERVER_ERROR}.
+     */
+    public static LogPolicy forStatus(int status) {
+        return status >= 400 && status < 500 ? CLIENT_ERROR : SERVER_ERROR;
+    }
+
+    /**
+     * Parses {@code OFF}, a level name such as {@code WARN}, or a level name followed by
+     * {@code ,stacktrace}, e.g. {@code ERROR,stacktrace}.
+     *
+     * @throws IllegalArgumentException if the value is none of these
+     */
+    public static LogPolicy parse(String value) {
+        String[] parts = value.trim().split("\\s*,\\s*");
+        String level = parts[0].toUpperCase(Locale.ROOT);
+        if (level.equals("OFF") && parts.length == 1) {
+            return OFF;
+        }
+        boolean stackTrace = parts.length == 2 && parts[1].equalsIgnoreCase("stacktrace");
+        if (parts.length > 2 || (parts.length == 2 && !stackTrace)) {
+            throw new IllegalArgumentException("Invalid log policy: " + value);
+        }
+        return new LogPolicy(Level.valueOf(level), stackTrace);
+    }
+}
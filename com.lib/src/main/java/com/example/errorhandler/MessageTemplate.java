@@ -0,0 +1,324 @@
+package com.example.errorhandler;
+
+import java.util.ArrayList;
+import java.util.Formattable;
+import java.util.List;
+import java.util.MissingFormatArgumentException;
+
+/**
+ * An {@link ErrorCode} message template parsed once into literal text and argument slots.
+ * <p>
+ * Rendering produces the same text as {@code String.format(template, args)} for the
+ * {@code %s}, {@code %n$s}, {@code %%} and {@code %n} specifiers used by error messages,
+ * without going through {@link java.util.Formatter}. Templates using any other specifier are
+ * kept as-is and rendered with {@code String.format}.
+ */
+public final class MessageTemplate {
+
+    private static final int ESTIMATED_ARGUMENT_LENGTH = 16;
+
+    private final String template;
+    /** Literal text around the slots; always one element longer than {@link #slots}. */
+    private final String[] literals;
+    /** Zero-based argument index per slot. */
+    private final int[] slots;
+    /** Original specifier per slot, used for error reporting only. */
+    private final String[] specifiers;
+    private final int literalLength;
+    /** {@link #literals} as escaped UTF-8 JSON string content, for rendering into a body. */
+    private final byte[][] jsonLiterals;
+    private final int jsonLiteralLength;
+    private final boolean fallback;
+
+    private MessageTemplate(String template, String[] literals, int[] slots, String[] specifiers,
+                            boolean fallback) {
+        this.template = template;
+        this.literals = literals;
+        this.slots = slots;
+        this.specifiers = specifiers;
+        this.fallback = fallback;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+        this.jsonLiterals = new byte[literals.length][];
+        int jsonLength = 0;
+        for (int i = 0; i < literals.length; i++) {
+            jsonLiterals[i] = new byte[JsonErrorWriter.escapedLength(literals[i])];
+            JsonErrorWriter.putEscaped(literals[i], jsonLiterals[i], 0);
+            jsonLength += jsonLiterals[i].length;
+        }
+        this.jsonLiteralLength = jsonLength;
+    }
+
+    public static MessageTemplate compile(String template) {
+        List<String> literals = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        List<String> specifiers = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int ordinary = 0;
+        int i = 0;
+        while (i < template.length()) {
+            char c = template.charAt(i);
+            if (c != '%') {
+                literal.append(c);
+                i++;
+                continue;
+            }
+            int end = specifierEnd(template, i);
+            if (end < 0) {
+                return new MessageTemplate(template, new String[]{template}, new int[0], new String[0], true);
+            }
+            String spec = template.substring(i, end);
+            if (spec.equals("%%")) {
+                literal.append('%');
+            } else if (spec.equals("%n")) {
+                literal.append(System.lineSeparator());
+            } else if (spec.equals("%s")) {
+                literals.add(literal.toString());
+                literal.setLength(0);
+                slots.add(ordinary++);
+                specifiers.add(spec);
+            } else if (spec.endsWith("$s")) {
+                literals.add(literal.toString());
+                literal.setLength(0);
+                slots.add(Integer.parseInt(spec.substring(1, spec.length() - 2)) - 1);
+                specifiers.add(spec);
+            } else {
+                return new MessageTemplate(template, new String[]{template}, new int[0], new String[0], true);
+            }
+            i = end;
+        }
+        String tail = literal.toString();
+        literals.add(slots.isEmpty() && tail.equals(template) ? template : tail);
+        int[] slotArray = new int[slots.size()];
+        for (int s = 0; s < slotArray.length; s++) {
+            slotArray[s] = slots.get(s);
+        }
+        return new MessageTemplate(template, literals.toArray(new String[0]), slotArray,
+                specifiers.toArray(new String[0]), false);
+    }
+
+    /**
+     * Returns the end index of the specifier starting at {@code start}, or -1 when it is not
+     * one of the plain forms this class renders itself.
+     */
+    private static int specifierEnd(String template, int start) {
+        int i = start + 1;
+        if (i >= template.length()) {
+            return -1;
+        }
+        char c = template.charAt(i);
+        if (c == '%' || c == 'n' || c == 's') {
+            return i + 1;
+        }
+        int digits = i;
+        while (i < template.length() && Character.isDigit(template.charAt(i))) {
+            i++;
+        }
+        if (i == digits || i - digits > 9 || template.charAt(digits) == '0' || i + 1 >= template.length()
+                || template.charAt(i) != '$' || template.charAt(i + 1) != 's') {
+            return -1;
+        }
+        return i + 2;
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    /**
+     * Whether rendering depends on arguments at all.
+     */
+    public boolean hasArguments() {
+        return fallback || slots.length > 0;
+    }
+
+    /**
+     * The message with its argument slots left out, for responses that do not name the
+     * argument: {@code "Resource not found: %s."} becomes {@code "Resource not found."}.
+     * Templates without slots, including those rendered with {@code String.format}, are
+     * returned as they are.
+     */
+    String withoutArguments() {
+        if (fallback || slots.length == 0) {
+            return template;
+        }
+        StringBuilder message = new StringBuilder(literalLength);
+        for (int i = 0; i < slots.length; i++) {
+            String literal = literals[i];
+            int end = literal.length();
+            while (end > 0 && (literal.charAt(end - 1) == ':' || Character.isWhitespace(literal.charAt(end - 1)))) {
+                end--;
+            }
+            message.append(literal, 0, end);
+        }
+        message.append(literals[slots.length]);
+        return message.toString().strip();
+    }
+
+    public String render(Object... args) {
+        if (fallback) {
+            return String.format(template, args);
+        }
+        if (slots.length == 0) {
+            return literals[0];
+        }
+        return appendTo(new StringBuilder(estimatedLength()), args).toString();
+    }
+
+    public String render(String arg) {
+        if (fallback) {
+            return String.format(template, arg);
+        }
+        if (slots.length == 0) {
+            return literals[0];
+        }
+        StringBuilder sb = new StringBuilder(literalLength + (arg == null ? 4 : arg.length()) * slots.length);
+        return appendTo(sb, arg).toString();
+    }
+
+    public String render(long arg) {
+        if (fallback) {
+            return String.format(template, arg);
+        }
+        if (slots.length == 0) {
+            return literals[0];
+        }
+        return appendTo(new StringBuilder(estimatedLength()), arg).toString();
+    }
+
+    public StringBuilder appendTo(StringBuilder sb, Object... args) {
+        if (fallback) {
+            return sb.append(String.format(template, args));
+        }
+        for (int i = 0; i < slots.length; i++) {
+            sb.append(literals[i]);
+            int index = slots[i];
+            if (args == null) {
+                sb.append((Object) null);
+            } else if (index >= args.length) {
+                throw new MissingFormatArgumentException(specifiers[i]);
+            } else {
+                appendArgument(sb, args[index]);
+            }
+        }
+        return sb.append(literals[slots.length]);
+    }
+
+    public StringBuilder appendTo(StringBuilder sb, String arg) {
+        if (fallback) {
+            return sb.append(String.format(template, arg));
+        }
+        for (int i = 0; i < slots.length; i++) {
+            requireFirstArgument(i);
+            sb.append(literals[i]).append(arg);
+        }
+        return sb.append(literals[slots.length]);
+    }
+
+    public StringBuilder appendTo(StringBuilder sb, long arg) {
+        if (fallback) {
+            return sb.append(String.format(template, arg));
+        }
+        for (int i = 0; i < slots.length; i++) {
+            requireFirstArgument(i);
+            sb.append(literals[i]).append(arg);
+        }
+        return sb.append(literals[slots.length]);
+    }
+
+    /**
+     * Returns {@code args}, or a copy with arguments other than strings and integers replaced
+     * by their text, so that {@link #escapedLength} and {@link #encodeEscaped} see the same
+     * characters even if {@code toString} is not stable. Checks that every slot has an argument.
+     */
+    static Object[] stableArguments(MessageTemplate template, Object[] args) {
+        if (template.fallback) {
+            return new Object[]{String.format(template.template, args)};
+        }
+        if (args == null) {
+            // rendered as "null" in every slot, like String.format
+            return null;
+        }
+        Object[] stable = args;
+        for (int i = 0; i < template.slots.length; i++) {
+            int index = template.slots[i];
+            if (index >= args.length) {
+                throw new MissingFormatArgumentException(template.specifiers[i]);
+            }
+            Object arg = args[index];
+            if (arg != null && !(arg instanceof String) && !isInteger(arg)) {
+                if (stable == args) {
+                    stable = args.clone();
+                }
+                stable[index] = arg instanceof Formattable ? String.format("%s", arg) : arg.toString();
+            }
+        }
+        return stable;
+    }
+
+    /**
+     * Length of the message rendered with {@code args} as escaped UTF-8 JSON string content.
+     */
+    int escapedLength(Object[] args) {
+        if (fallback) {
+            return JsonErrorWriter.escapedLength((String) args[0]);
+        }
+        int length = jsonLiteralLength;
+        for (int slot : slots) {
+            Object arg = args == null ? null : args[slot];
+            length += isInteger(arg)
+                    ? JsonErrorWriter.decimalLength(((Number) arg).longValue())
+                    : JsonErrorWriter.escapedLength(String.valueOf(arg));
+        }
+        return length;
+    }
+
+    /**
+     * Writes the message rendered with {@code args} as escaped UTF-8 JSON string content and
+     * returns the position after the last byte written. No string is created for the message
+     * or for string and integer arguments.
+     */
+    int encodeEscaped(Object[] args, byte[] dst, int pos) {
+        if (fallback) {
+            return JsonErrorWriter.putEscaped((String) args[0], dst, pos);
+        }
+        for (int i = 0; i < slots.length; i++) {
+            pos = JsonErrorWriter.put(jsonLiterals[i], dst, pos);
+            Object arg = args == null ? null : args[slots[i]];
+            pos = isInteger(arg)
+                    ? JsonErrorWriter.putDecimal(((Number) arg).longValue(), dst, pos)
+                    : JsonErrorWriter.putEscaped(String.valueOf(arg), dst, pos);
+        }
+        return JsonErrorWriter.put(jsonLiterals[slots.length], dst, pos);
+    }
+
+    private static boolean isInteger(Object arg) {
+        return arg instanceof Long || arg instanceof Integer || arg instanceof Short || arg instanceof Byte;
+    }
+
+    private void requireFirstArgument(int slot) {
+        if (slots[slot] != 0) {
+            throw new MissingFormatArgumentException(specifiers[slot]);
+        }
+    }
+
+    private static void appendArgument(StringBuilder sb, Object arg) {
+        if (arg instanceof Formattable) {
+            sb.append(String.format("%s", arg));
+        } else {
+            sb.append(arg);
+        }
+    }
+
+    private int estimatedLength() {
+        return literalLength + ESTIMATED_ARGUMENT_LENGTH * slots.length;
+    }
+
+    @Override
+    public String toString() {
+        return template;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.errorhandler;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, lock-free ring buffer for many producers and a single consumer.
+ * <p>
+ * Producers claim a sequence number by advancing {@code tail} and then fill the slot; a
+ * {@code null} slot means "not yet published". The consumer empties a slot before moving
+ * {@code head} past it, so a producer that sees free capacity always finds its slot empty.
+ */
+final class MpscRingBuffer<E> {
+
+    private final AtomicReferenceArray<E> slots;
+    private final int mask;
+    private final int capacity;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * @param capacity rounded up to the next power of two
+     */
+    MpscRingBuffer(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("capacity out of range: " + capacity);
+        }
+        int rounded = 1;
+        while (rounded < capacity) {
+            rounded <<= 1;
+        }
+        this.capacity = rounded;
+        this.slots = new AtomicReferenceArray<>(rounded);
+        this.mask = rounded - 1;
+    }
+
+    /**
+     * Adds {@code element} unless the buffer is full. Safe to call from any thread.
+     */
+    boolean offer(E element) {
+        while (true) {
+            long t = tail.get();
+            if (t - head.get() >= capacity) {
+                return false;
+            }
+            if (tail.compareAndSet(t, t + 1)) {
+                slots.lazySet((int) t & mask, element);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Removes the oldest element, or returns {@code null} if there is none yet. Must only be
+     * called from the consumer thread.
+     */
+    E poll() {
+        long h = head.get();
+        int index = (int) h & mask;
+        E element = slots.get(index);
+        if (element == null) {
+            return null;
+        }
+        slots.lazySet(index, null);
+        head.lazySet(h + 1);
+        return element;
+    }
+
+    int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    boolean isEmpty() {
+        return tail.get() == head.get();
+    }
+
+    int capacity() {
+        return capacity;
+    }
+}
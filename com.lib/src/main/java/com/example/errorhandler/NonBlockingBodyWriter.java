@@ -0,0 +1,105 @@
+package com.example.errorhandler;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.WriteListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Writes a pre-encoded error body through the Servlet non-blocking I/O API, so a slow client
+ * does not hold a container thread. The request is put into async mode with a timeout; when
+ * the client does not accept the body in time the response is abandoned.
+ */
+final class NonBlockingBodyWriter implements WriteListener, AsyncListener {
+
+    private static final Logger log = LoggerFactory.getLogger(NonBlockingBodyWriter.class);
+
+    private final AsyncContext context;
+    private final ServletOutputStream out;
+    private final byte[] body;
+    private final AtomicBoolean completed = new AtomicBoolean();
+    // only touched from onWritePossible, which the container never runs concurrently
+    private boolean written;
+
+    private NonBlockingBodyWriter(AsyncContext context, ServletOutputStream out, byte[] body) {
+        this.context = context;
+        this.out = out;
+        this.body = body;
+    }
+
+    /**
+     * Starts an asynchronous write of {@code body}. Returns {@code false}, without side
+     * effects, if the request cannot be written asynchronously and the caller should write
+     * it in blocking mode instead.
+     */
+    static boolean start(ServletRequest request, ServletResponse response, byte[] body, long timeoutMillis)
+            throws IOException {
+        if (!request.isAsyncSupported() || request.isAsyncStarted()) {
+            return false;
+        }
+        ServletOutputStream out;
+        try {
+            out = response.getOutputStream();
+        } catch (IllegalStateException writerAlreadyUsed) {
+            return false;
+        }
+        AsyncContext context = request.startAsync(request, response);
+        context.setTimeout(timeoutMillis);
+        NonBlockingBodyWriter writer = new NonBlockingBodyWriter(context, out, body);
+        context.addListener(writer);
+        out.setWriteListener(writer);
+        return true;
+    }
+
+    @Override
+    public void onWritePossible() throws IOException {
+        if (!written) {
+            written = true;
+            out.write(body);
+        }
+        // once the container has flushed the body the stream is ready again
+        if (out.isReady()) {
+            complete();
+        }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        log.debug("Writing error response failed", t);
+        complete();
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+        log.debug("Client did not accept the error response within {} ms", context.getTimeout());
+        complete();
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+        complete();
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+        completed.set(true);
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+    }
+
+    private void complete() {
+        if (completed.compareAndSet(false, true)) {
+            context.complete();
+        }
+    }
+}
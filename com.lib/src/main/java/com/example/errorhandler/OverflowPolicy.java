@@ -0,0 +1,16 @@
+package com.example.errorhandler;
+
+/**
+ * What an {@link ErrorEventPipeline} does with new events when its buffer cannot keep up.
+ */
+public enum OverflowPolicy {
+    /** Drop events that do not fit into the buffer. */
+    DROP,
+    /**
+     * Once the buffer is half full, keep only one in
+     * {@link ErrorEventPipeline#SAMPLE_RATE} events; drop events that do not fit.
+     */
+    SAMPLE,
+    /** Make the publishing thread wait for space. Never loses events while the pipeline runs. */
+    BLOCK
+}
@@ -0,0 +1,104 @@
+package com.example.errorhandler;
+
+import java.util.Arrays;
+
+/**
+ * A fully rendered error response: status, headers and UTF-8 body, served as-is. Most are
+ * built once and shared; {@link ErrorResponder} also returns one per error whose message
+ * depends on the exception. Instances are immutable; the body array must not be modified by
+ * callers.
+ */
+public final class PrecomputedResponse {
+
+    private final int status;
+    private final String contentType;
+    private final byte[] body;
+    private final String[] headerNames;
+    private final String[] headerValues;
+
+    public PrecomputedResponse(int status, String contentType, byte[] body) {
+        this(status, contentType, body, new String[0], new String[0]);
+    }
+
+    private PrecomputedResponse(int status, String contentType, byte[] body,
+                                String[] headerNames, String[] headerValues) {
+        this.status = status;
+        this.contentType = contentType;
+        this.body = body;
+        this.headerNames = headerNames;
+        this.headerValues = headerValues;
+    }
+
+    /**
+     * Renders the JSON body for {@code payload} once.
+     */
+    public static PrecomputedResponse of(int status, ErrorPayload payload) {
+        return new PrecomputedResponse(status, JsonErrorWriter.CONTENT_TYPE, ErrorRenderer.encode(payload));
+    }
+
+    /**
+     * Renders the JSON body for {@code payload} once, with a retry hint in the body and a
+     * matching {@code Retry-After} header.
+     */
+    public static PrecomputedResponse of(int status, ErrorPayload payload, long retryAfterSeconds) {
+        return new PrecomputedResponse(status, JsonErrorWriter.CONTENT_TYPE,
+                ErrorRenderer.encode(payload, retryAfterSeconds))
+                .withHeader("Retry-After", Long.toString(retryAfterSeconds));
+    }
+
+    /**
+     * A response rendered for a single error, with a {@code Retry-After} header unless
+     * {@code retryAfterSeconds} is negative, and a {@code Cache-Control} header unless
+     * {@code cacheControl} is {@code null}.
+     */
+    static PrecomputedResponse rendered(int status, byte[] body, long retryAfterSeconds, String cacheControl) {
+        int count = (retryAfterSeconds >= 0 ? 1 : 0) + (cacheControl != null ? 1 : 0);
+        String[] names = new String[count];
+        String[] values = new String[count];
+        int i = 0;
+        if (retryAfterSeconds >= 0) {
+            names[i] = "Retry-After";
+            values[i++] = Long.toString(retryAfterSeconds);
+        }
+        if (cacheControl != null) {
+            names[i] = "Cache-Control";
+            values[i] = cacheControl;
+        }
+        return new PrecomputedResponse(status, JsonErrorWriter.CONTENT_TYPE, body, names, values);
+    }
+
+    /**
+     * Returns a copy with an additional response header.
+     */
+    public PrecomputedResponse withHeader(String name, String value) {
+        String[] names = Arrays.copyOf(headerNames, headerNames.length + 1);
+        String[] values = Arrays.copyOf(headerValues, headerValues.length + 1);
+        names[headerNames.length] = name;
+        values[headerValues.length] = value;
+        return new PrecomputedResponse(status, contentType, body, names, values);
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    public int getHeaderCount() {
+        return headerNames.length;
+    }
+
+    public String getHeaderName(int index) {
+        return headerNames[index];
+    }
+
+    public String getHeaderValue(int index) {
+        return headerValues[index];
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.errorhandler;
+
+import java.util.Arrays;
+
+/**
+ * Rendered template responses per {@link ErrorCode}, with their status and
+ * {@code Cache-Control} header, including one response per suggested delay for retryable
+ * codes up to {@link #MAX_PRECOMPUTED_DELAY_SECONDS}; longer delays are rendered on demand.
+ * Immutable; changing a header yields a new table.
+ */
+final class ResponseTable {
+
+    private static final String CACHE_CONTROL = "Cache-Control";
+
+    /**
+     * Longest delay with a precomputed retry response, the longest any built-in code suggests.
+     * Every table and route override holds one response per second below it.
+     */
+    static final long MAX_PRECOMPUTED_DELAY_SECONDS = 60;
+
+    private final int[] statuses;
+    private final String[] cacheControl;
+    private final long maxPrecomputedDelaySeconds;
+    private final PrecomputedResponse[] templates;
+    /** Indexed by delay in seconds; {@code null} for codes that are not retryable. */
+    private final PrecomputedResponse[][] retries;
+
+    ResponseTable(int[] statuses, String[] cacheControl) {
+        this(statuses, cacheControl, MAX_PRECOMPUTED_DELAY_SECONDS);
+    }
+
+    ResponseTable(int[] statuses, String[] cacheControl, long maxPrecomputedDelaySeconds) {
+        this.statuses = statuses;
+        this.cacheControl = cacheControl;
+        this.maxPrecomputedDelaySeconds = maxPrecomputedDelaySeconds;
+        ErrorCode[] codes = ErrorCode.values();
+        this.templates = new PrecomputedResponse[codes.length];
+        this.retries = new PrecomputedResponse[codes.length][];
+        for (ErrorCode code : codes) {
+            templates[code.ordinal()] = withCacheControl(code,
+                    PrecomputedResponse.of(statuses[code.ordinal()], templatePayload(code)));
+            RetryPolicy policy = code.getRetryPolicy();
+            if (policy != null) {
+                long max = Math.min(policy.getMaxDelaySeconds(), maxPrecomputedDelaySeconds);
+                PrecomputedResponse[] byDelay = new PrecomputedResponse[(int) max + 1];
+                for (long delay = policy.getMinDelaySeconds(); delay < byDelay.length; delay++) {
+                    byDelay[(int) delay] = retryResponse(code, delay);
+                }
+                retries[code.ordinal()] = byDelay;
+            }
+        }
+    }
+
+    /**
+     * Status per code, indexed by ordinal.
+     */
+    static int[] resolveStatuses(StatusResolver statusResolver) {
+        ErrorCode[] codes = ErrorCode.values();
+        int[] result = new int[codes.length];
+        for (ErrorCode code : codes) {
+            result[code.ordinal()] = statusResolver.resolve(code);
+        }
+        return result;
+    }
+
+    /**
+     * Default {@code Cache-Control} per code: misses ({@code 404} and {@code 410}) may be
+     * cached briefly by the client, everything else must not be stored. Misses are
+     * {@code private} because shared caches only recognise {@code Authorization} as making a
+     * response personal; a miss for a cookie-authenticated request would otherwise be served
+     * to everyone asking for the same URI.
+     */
+    static String[] defaultCacheControl(int[] statuses) {
+        String[] values = new String[statuses.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = statuses[i] == 404 || statuses[i] == 410 ? "private, max-age=60" : "no-store";
+        }
+        return values;
+    }
+
+    /**
+     * Returns a table that sends {@code value} as {@code Cache-Control} for {@code code}, or
+     * no such header when {@code value} is {@code null}.
+     */
+    ResponseTable withCacheControl(ErrorCode code, String value) {
+        String[] copy = Arrays.copyOf(cacheControl, cacheControl.length);
+        copy[code.ordinal()] = value;
+        return new ResponseTable(statuses, copy, maxPrecomputedDelaySeconds);
+    }
+
+    PrecomputedResponse template(ErrorCode code) {
+        return templates[code.ordinal()];
+    }
+
+    /**
+     * Template response with a retry hint of {@code delaySeconds}, which must lie within
+     * the code's {@link RetryPolicy}. Delays past the precomputed range are rendered anew.
+     */
+    PrecomputedResponse retry(ErrorCode code, long delaySeconds) {
+        PrecomputedResponse[] byDelay = retries[code.ordinal()];
+        if (delaySeconds < byDelay.length) {
+            return byDelay[(int) delaySeconds];
+        }
+        return retryResponse(code, delaySeconds);
+    }
+
+    /**
+     * Renders a template response with an arbitrary retry hint, for responses built once.
+     */
+    PrecomputedResponse retryResponse(ErrorCode code, long delaySeconds) {
+        return withCacheControl(code,
+                PrecomputedResponse.of(statuses[code.ordinal()], templatePayload(code), delaySeconds));
+    }
+
+    String cacheControl(ErrorCode code) {
+        return cacheControl[code.ordinal()];
+    }
+
+    private PrecomputedResponse withCacheControl(ErrorCode code, PrecomputedResponse response) {
+        String value = cacheControl[code.ordinal()];
+        return value != null ? response.withHeader(CACHE_CONTROL, value) : response;
+    }
+
+    private static ErrorPayload templatePayload(ErrorCode code) {
+        return new ErrorPayload(code, code.getDefaultMessage());
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.errorhandler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The {@code Cache-Control} settings of a filter, kept as data, and every response table
+ * derived from them: the table for all requests, one per route prefix with overrides, and
+ * the canned {@code 503} and {@code 429} responses for each. Immutable; every change yields
+ * new tables built from the current settings, so a per-code header changed after a route
+ * override still reaches that route.
+ */
+final class ResponseTables {
+
+    private final int[] statuses;
+    /** Per-code values, defaults included; {@code null} sends no header. */
+    private final String[] cacheControl;
+    /** Per-route overrides by prefix; a {@code null} value removes the header on the route. */
+    private final Map<String, EnumMap<ErrorCode, String>> routeOverrides;
+    /** {@code Retry-After} of the shed and limited responses, or 0 when not in use. */
+    private final long shedRetrySeconds;
+    private final long limitedRetrySeconds;
+
+    private final Responses base;
+    /** Longest prefix first. */
+    private final Route[] routes;
+
+    private ResponseTables(int[] statuses, String[] cacheControl, Map<String, EnumMap<ErrorCode, String>> routeOverrides,
+                           long shedRetrySeconds, long limitedRetrySeconds) {
+        this.statuses = statuses;
+        this.cacheControl = cacheControl;
+        this.routeOverrides = routeOverrides;
+        this.shedRetrySeconds = shedRetrySeconds;
+        this.limitedRetrySeconds = limitedRetrySeconds;
+        this.base = responses(cacheControl);
+        List<Route> derived = new ArrayList<>();
+        for (Map.Entry<String, EnumMap<ErrorCode, String>> route : routeOverrides.entrySet()) {
+            String[] values = Arrays.copyOf(cacheControl, cacheControl.length);
+            for (Map.Entry<ErrorCode, String> override : route.getValue().entrySet()) {
+                values[override.getKey().ordinal()] = override.getValue();
+            }
+            derived.add(new Route(route.getKey(), responses(values)));
+        }
+        derived.sort((a, b) -> b.prefix().length() - a.prefix().length());
+        this.routes = derived.toArray(new Route[0]);
+    }
+
+    /**
+     * Tables with the default {@code Cache-Control} per code.
+     */
+    static ResponseTables of(int[] statuses) {
+        return new ResponseTables(statuses, ResponseTable.defaultCacheControl(statuses), new TreeMap<>(), 0, 0);
+    }
+
+    ResponseTables withCacheControl(ErrorCode code, String value) {
+        String[] copy = Arrays.copyOf(cacheControl, cacheControl.length);
+        copy[code.ordinal()] = value;
+        return new ResponseTables(statuses, copy, routeOverrides, shedRetrySeconds, limitedRetrySeconds);
+    }
+
+    ResponseTables withCacheControl(String routePrefix, ErrorCode code, String value) {
+        Map<String, EnumMap<ErrorCode, String>> copy = new TreeMap<>();
+        routeOverrides.forEach((prefix, overrides) -> copy.put(prefix, new EnumMap<>(overrides)));
+        copy.computeIfAbsent(routePrefix, prefix -> new EnumMap<>(ErrorCode.class)).put(code, value);
+        return new ResponseTables(statuses, cacheControl, copy, shedRetrySeconds, limitedRetrySeconds);
+    }
+
+    ResponseTables withShedRetry(long retryAfterSeconds) {
+        return new ResponseTables(statuses, cacheControl, routeOverrides, retryAfterSeconds, limitedRetrySeconds);
+    }
+
+    ResponseTables withLimitedRetry(long retryAfterSeconds) {
+        return new ResponseTables(statuses, cacheControl, routeOverrides, shedRetrySeconds, retryAfterSeconds);
+    }
+
+    /**
+     * Responses for a request to {@code uri}: those of the longest matching route prefix,
+     * or the base ones.
+     */
+    Responses forUri(String uri) {
+        for (Route route : routes) {
+            if (uri.startsWith(route.prefix())) {
+                return route.responses();
+            }
+        }
+        return base;
+    }
+
+    private Responses responses(String[] values) {
+        ResponseTable table = new ResponseTable(statuses, values);
+        return new Responses(table,
+                shedRetrySeconds > 0 ? table.retryResponse(ErrorCode.SERVICE_UNAVAILABLE, shedRetrySeconds) : null,
+                limitedRetrySeconds > 0 ? table.retryResponse(ErrorCode.TOO_MANY_REQUESTS, limitedRetrySeconds) : null);
+    }
+
+    /**
+     * @param shed    the short-circuit {@code 503}, or {@code null} when shedding is off
+     * @param limited the per-client {@code 429}, or {@code null} when the limit is off
+     */
+    record Responses(ResponseTable table, PrecomputedResponse shed, PrecomputedResponse limited) {
+    }
+
+    private record Route(String prefix, Responses responses) {
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.errorhandler;
+
+import java.time.Duration;
+import java.util.random.RandomGenerator;
+
+/**
+ * How long clients should wait before retrying a request that failed with a retryable
+ * {@link ErrorCode}. The delay grows from {@code minDelay} to {@code maxDelay} as the server
+ * gets busier, so clients back off harder when retries would hurt most.
+ *
+ * @param minDelay delay suggested when the server is idle
+ * @param maxDelay delay suggested when the server is saturated
+ */
+public record RetryPolicy(Duration minDelay, Duration maxDelay) {
+
+    public RetryPolicy {
+        if (minDelay.isNegative() || maxDelay.compareTo(minDelay) < 0) {
+            throw new IllegalArgumentException("Expected 0 <= minDelay <= maxDelay: " + minDelay + ", " + maxDelay);
+        }
+    }
+
+    public static RetryPolicy of(Duration minDelay, Duration maxDelay) {
+        return new RetryPolicy(minDelay, maxDelay);
+    }
+
+    public long getMinDelaySeconds() {
+        return minDelay.toSeconds();
+    }
+
+    /**
+     * Upper bound on the suggested delay, rounded up to whole seconds.
+     */
+    public long getMaxDelaySeconds() {
+        return (maxDelay.toMillis() + 999) / 1000;
+    }
+
+    /**
+     * Delay in whole seconds for a saturation between 0 (idle) and 1 (saturated); values
+     * outside that range are clamped.
+     */
+    public long delaySeconds(double saturation) {
+        double load = Math.max(0, Math.min(1, saturation));
+        long min = getMinDelaySeconds();
+        return min + (long) Math.ceil((getMaxDelaySeconds() - min) * load);
+    }
+
+    /**
+     * {@link #delaySeconds} moved by up to a quarter, and at least a second, either way,
+     * uniformly, so clients that failed together do not retry together. The result stays
+     * within the policy's bounds.
+     */
+    public long jitteredDelaySeconds(double saturation, RandomGenerator random) {
+        long delay = delaySeconds(saturation);
+        long spread = Math.max(1, delay / 4);
+        delay += random.nextLong(-spread, spread + 1);
+        return Math.max(getMinDelaySeconds(), Math.min(delay, getMaxDelaySeconds()));
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.errorhandler;
+
+/**
+ * Reports how busy the server is, from 0 (idle) to 1 (saturated), for scaling the retry
+ * delays suggested to clients. Called for every retryable error, so implementations should
+ * return a value computed elsewhere, e.g. the utilisation of a thread pool or a connection
+ * pool, rather than measure on the spot.
+ */
+@FunctionalInterface
+public interface SaturationSignal {
+
+    SaturationSignal NONE = () -> 0;
+
+    double saturation();
+}
@@ -0,0 +1,13 @@
+package com.example.errorhandler;
+
+/**
+ * How much of the call stack an {@link ErrorCodeException} records when it is created.
+ */
+public enum StackTraceMode {
+    /** No stack trace at all; creating the exception costs about as much as any object. */
+    NONE,
+    /** The innermost {@link StackTracePolicy#getTopFrames()} frames, captured with {@link StackWalker}. */
+    TOP_FRAMES,
+    /** The complete stack trace, as for any other exception. */
+    FULL
+}
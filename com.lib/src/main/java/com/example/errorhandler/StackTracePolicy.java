@@ -0,0 +1,66 @@
+package com.example.errorhandler;
+
+import java.util.Arrays;
+
+/**
+ * Global choice of {@link StackTraceMode} for {@link ErrorCodeException}s, by default and per
+ * {@link ErrorCode}. Configure it once at startup; changes only affect exceptions created
+ * afterwards.
+ */
+public final class StackTracePolicy {
+
+    private static final int DEFAULT_TOP_FRAMES = 8;
+
+    /** Per code ordinal, {@code null} where the code follows the default mode. */
+    private static volatile StackTraceMode[] modes = new StackTraceMode[ErrorCode.values().length];
+    private static volatile StackTraceMode defaultMode = StackTraceMode.FULL;
+    private static volatile int topFrames = DEFAULT_TOP_FRAMES;
+
+    private StackTracePolicy() {
+    }
+
+    public static StackTraceMode modeFor(ErrorCode code) {
+        StackTraceMode mode = modes[code.ordinal()];
+        return mode != null ? mode : defaultMode;
+    }
+
+    public static StackTraceMode getDefaultMode() {
+        return defaultMode;
+    }
+
+    public static void setDefaultMode(StackTraceMode mode) {
+        defaultMode = mode;
+    }
+
+    /**
+     * Overrides the default mode for one code; {@code null} restores the default.
+     */
+    public static synchronized void setMode(ErrorCode code, StackTraceMode mode) {
+        StackTraceMode[] copy = Arrays.copyOf(modes, modes.length);
+        copy[code.ordinal()] = mode;
+        modes = copy;
+    }
+
+    public static int getTopFrames() {
+        return topFrames;
+    }
+
+    /**
+     * Number of frames kept in {@link StackTraceMode#TOP_FRAMES} mode.
+     */
+    public static void setTopFrames(int frames) {
+        if (frames < 1) {
+            throw new IllegalArgumentException("frames must be positive: " + frames);
+        }
+        topFrames = frames;
+    }
+
+    /**
+     * Restores the defaults: full stack traces for every code.
+     */
+    public static synchronized void reset() {
+        modes = new StackTraceMode[ErrorCode.values().length];
+        defaultMode = StackTraceMode.FULL;
+        topFrames = DEFAULT_TOP_FRAMES;
+    }
+}
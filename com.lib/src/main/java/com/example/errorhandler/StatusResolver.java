@@ -0,0 +1,16 @@
+package com.example.errorhandler;
+
+/**
+ * Decides the HTTP status sent for an {@link ErrorCode}. The filter calls it once per code
+ * at construction and serves the results from a table, so implementations need not be fast.
+ */
+@FunctionalInterface
+public interface StatusResolver {
+
+    /**
+     * Uses the status declared on each code.
+     */
+    StatusResolver DEFAULT = ErrorCode::getHttpStatus;
+
+    int resolve(ErrorCode code);
+}
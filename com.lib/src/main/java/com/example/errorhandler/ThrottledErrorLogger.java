@@ -0,0 +1,290 @@
+package com.example.errorhandler;
+
+import org.slf4j.Logger;
+import org.slf4j.event.Level;
+
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Logs exceptions with bounded cost, however many requests fail.
+ * <p>
+ * Each exception is fingerprinted from its class, its {@link ErrorCoded} code, its top
+ * {@value #FINGERPRINT_FRAMES} stack frames and the classes of its first causes, so the same
+ * exception type thrown from unrelated call sites is logged separately. The frames are read
+ * through {@link Throwable#getStackTrace()}, which copies the trace, so the fingerprint of the
+ * last exception is kept per instance and one thrown repeatedly, such as a preallocated one,
+ * is read once. The first occurrence of a fingerprint in a window is logged in full, with
+ * the stack trace if the {@link LogPolicy} asks for one. Later occurrences in the same window are counted, and a one-line
+ * "seen N more times" summary is logged whenever the fingerprint's token bucket allows.
+ * <p>
+ * State lives in a fixed table of {@value #WAYS}-way buckets indexed by fingerprint, so memory
+ * does not grow with the number of distinct errors. A new fingerprint takes the least recently
+ * seen slot of its bucket; if that slot still held suppressed occurrences, they are reported
+ * before it is reused. Updates are lock-free and the counts are approximate under heavy
+ * contention, which is acceptable for logging.
+ */
+public final class ThrottledErrorLogger {
+
+    public static final Duration DEFAULT_WINDOW = Duration.ofMinutes(1);
+    public static final int DEFAULT_SUMMARY_BURST = 3;
+    public static final Duration DEFAULT_SUMMARY_INTERVAL = Duration.ofSeconds(10);
+
+    private static final int BUCKETS = 256;
+    static final int WAYS = 4;
+    private static final long LAST_SEEN_RESOLUTION_NANOS = 1_000_000;
+    static final int FINGERPRINT_FRAMES = 3;
+    private static final int FINGERPRINT_CAUSES = 3;
+
+    private final Logger log;
+    private final long windowNanos;
+    private final long summaryIntervalNanos;
+    private final long summaryBurstNanos;
+    private final LongSupplier clock;
+    private final int bucketMask;
+    private final Slot[] slots;
+    /** Fingerprint of the exception logged last; racy, a miss only costs reading its frames. */
+    private volatile Fingerprinted last;
+
+    public ThrottledErrorLogger(Logger log) {
+        this(log, DEFAULT_WINDOW, DEFAULT_SUMMARY_BURST, DEFAULT_SUMMARY_INTERVAL);
+    }
+
+    /**
+     * @param window          how long a fingerprint stays known before its stack trace is
+     *                        logged again
+     * @param summaryBurst    number of summaries a fingerprint may log back to back
+     * @param summaryInterval time to earn back one summary
+     */
+    public ThrottledErrorLogger(Logger log, Duration window, int summaryBurst, Duration summaryInterval) {
+        this(log, window, summaryBurst, summaryInterval, System::nanoTime, BUCKETS);
+    }
+
+    ThrottledErrorLogger(Logger log, Duration window, int summaryBurst, Duration summaryInterval,
+                         LongSupplier clock, int buckets) {
+        if (Integer.bitCount(buckets) != 1) {
+            throw new IllegalArgumentException("buckets must be a power of two: " + buckets);
+        }
+        if (summaryBurst < 1) {
+            throw new IllegalArgumentException("summaryBurst must be positive: " + summaryBurst);
+        }
+        this.log = log;
+        this.windowNanos = window.toNanos();
+        this.summaryIntervalNanos = summaryInterval.toNanos();
+        this.summaryBurstNanos = summaryIntervalNanos * summaryBurst;
+        this.clock = clock;
+        this.bucketMask = buckets - 1;
+        this.slots = new Slot[buckets * WAYS];
+        long expired = clock.getAsLong() - windowNanos;
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new Slot(expired);
+        }
+    }
+
+    /**
+     * Logs {@code e} with a full stack trace, subject to deduplication.
+     */
+    public void log(Throwable e) {
+        log(e, LogPolicy.SERVER_ERROR);
+    }
+
+    /**
+     * Logs {@code e} at the policy's level, subject to deduplication. The stack trace, if the
+     * policy asks for one, is only included in the first entry of a window.
+     */
+    public void log(Throwable e, LogPolicy policy) {
+        if (!policy.isEnabled() || !log.isEnabledForLevel(policy.level())) {
+            return;
+        }
+        Level level = policy.level();
+        long fingerprint = fingerprintOf(e);
+        long now = clock.getAsLong();
+        Slot slot = find(fingerprint);
+        if (slot == null) {
+            slot = claim(fingerprint, e, level, now);
+        } else if (now - slot.lastSeen > LAST_SEEN_RESOLUTION_NANOS) {
+            // coarse, so a frequent error does not write the shared slot on every call
+            slot.lastSeen = now;
+        }
+        long start = slot.windowStart.get();
+        if (now - start >= windowNanos && slot.windowStart.compareAndSet(start, now)) {
+            // this thread opened a new window for the slot
+            long carried = slot.suppressed.getAndSet(0);
+            // start with an empty bucket so the first summary covers a full interval
+            slot.summaryDue.set(now + summaryBurstNanos);
+            if (carried > 0) {
+                emit(level, "{} seen {} more times in the previous window", e.getClass().getName(), carried);
+            }
+            if (policy.stackTrace()) {
+                emit(level, e.getMessage(), e);
+            } else {
+                emit(level, "{}: {}", e.getClass().getName(), e.getMessage());
+            }
+            return;
+        }
+        if (trySummary(slot, now)) {
+            long seen = slot.suppressed.getAndSet(0) + 1;
+            emit(level, "{}: {} (seen {} more times)", e.getClass().getName(), e.getMessage(), seen);
+        } else {
+            slot.suppressed.incrementAndGet();
+        }
+    }
+
+    private Slot find(long fingerprint) {
+        int base = ((int) fingerprint & bucketMask) * WAYS;
+        for (int i = base; i < base + WAYS; i++) {
+            Slot slot = slots[i];
+            if (slot.fingerprint.get() == fingerprint) {
+                return slot;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Takes over an unused slot of the fingerprint's bucket, or else the least recently seen
+     * one, with an expired window, so the caller logs the error in full. Retries only when another thread claimed
+     * the same slot first. Occurrences the slot had suppressed for
+     * its previous error are reported first.
+     */
+    private Slot claim(long fingerprint, Throwable e, Level level, long now) {
+        int base = ((int) fingerprint & bucketMask) * WAYS;
+        while (true) {
+            Slot victim = null;
+            for (int i = base; i < base + WAYS; i++) {
+                Slot slot = slots[i];
+                if (slot.errorName == null) {
+                    // never claimed
+                    victim = slot;
+                    break;
+                }
+                // differences of nanoTime values, which may wrap, but lie within a few windows
+                if (victim == null || slot.lastSeen - victim.lastSeen < 0) {
+                    victim = slot;
+                }
+            }
+            long previous = victim.fingerprint.get();
+            if (previous == fingerprint) {
+                // another thread claimed a slot for the same error meanwhile
+                return victim;
+            }
+            if (!victim.fingerprint.compareAndSet(previous, fingerprint)) {
+                continue;
+            }
+            long carried = victim.suppressed.getAndSet(0);
+            String evicted = victim.errorName;
+            Level evictedLevel = victim.level;
+            victim.errorName = e.getClass().getName();
+            victim.level = level;
+            victim.lastSeen = now;
+            victim.windowStart.set(now - windowNanos);
+            if (carried > 0) {
+                emit(evictedLevel, "{} seen {} more times before its log slot was reused", evicted, carried);
+            }
+            return victim;
+        }
+    }
+
+    private void emit(Level level, String message, Throwable cause) {
+        switch (level) {
+            case ERROR -> log.error(message, cause);
+            case WARN -> log.warn(message, cause);
+            case INFO -> log.info(message, cause);
+            case DEBUG -> log.debug(message, cause);
+            case TRACE -> log.trace(message, cause);
+        }
+    }
+
+    private void emit(Level level, String format, Object... args) {
+        switch (level) {
+            case ERROR -> log.error(format, args);
+            case WARN -> log.warn(format, args);
+            case INFO -> log.info(format, args);
+            case DEBUG -> log.debug(format, args);
+            case TRACE -> log.trace(format, args);
+        }
+    }
+
+    /**
+     * Token bucket as a generic cell rate algorithm: {@code summaryDue} runs ahead of the clock
+     * by one interval per token spent, and a token is available while it is less than a full
+     * burst ahead.
+     */
+    private boolean trySummary(Slot slot, long now) {
+        while (true) {
+            long due = slot.summaryDue.get();
+            long next = Math.max(due, now) + summaryIntervalNanos;
+            if (next - now > summaryBurstNanos) {
+                return false;
+            }
+            if (slot.summaryDue.compareAndSet(due, next)) {
+                return true;
+            }
+        }
+    }
+
+    private long fingerprintOf(Throwable e) {
+        Fingerprinted cached = last;
+        if (cached != null && cached.get() == e) {
+            return cached.fingerprint;
+        }
+        long fingerprint = fingerprint(e);
+        last = new Fingerprinted(e, fingerprint);
+        return fingerprint;
+    }
+
+    static long fingerprint(Throwable e) {
+        long h = e.getClass().getName().hashCode();
+        if (e instanceof ErrorCoded coded && coded.getErrorCode() != null) {
+            h = h * 31 + coded.getErrorCode().ordinal();
+        }
+        StackTraceElement[] frames = e.getStackTrace();
+        for (int i = 0; i < FINGERPRINT_FRAMES && i < frames.length; i++) {
+            StackTraceElement frame = frames[i];
+            h = h * 31 + frame.getClassName().hashCode();
+            h = h * 31 + frame.getMethodName().hashCode();
+            h = h * 31 + frame.getLineNumber();
+        }
+        Throwable cause = e.getCause();
+        for (int i = 0; i < FINGERPRINT_CAUSES && cause != null && cause != e; i++) {
+            h = h * 31 + cause.getClass().getName().hashCode();
+            cause = cause.getCause();
+        }
+        // murmur3 finalizer, spreads the bits used for the slot index
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Weak, so the cache does not keep the last exception and its causes reachable.
+     */
+    private static final class Fingerprinted extends WeakReference<Throwable> {
+        private final long fingerprint;
+
+        Fingerprinted(Throwable e, long fingerprint) {
+            super(e);
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    private static final class Slot {
+        private final AtomicLong fingerprint = new AtomicLong();
+        private volatile long lastSeen;
+        private volatile String errorName;
+        private volatile Level level;
+        private final AtomicLong windowStart;
+        private final AtomicLong suppressed = new AtomicLong();
+        private final AtomicLong summaryDue = new AtomicLong();
+
+        Slot(long expired) {
+            this.lastSeen = expired;
+            this.windowStart = new AtomicLong(expired);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.errorhandler;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClientErrorLimiterTest {
+
+    private static final long INTERVAL = Duration.ofSeconds(10).toNanos();
+
+    private final AtomicLong clock = new AtomicLong();
+    private final ClientErrorLimiter limiter = new ClientErrorLimiter(5, Duration.ofSeconds(10), clock::get);
+
+    @Test
+    void testLimitsClientAtMaxErrors() {
+        for (int i = 0; i < 4; i++) {
+            limiter.recordError("10.0.0.1");
+        }
+        assertFalse(limiter.isLimited("10.0.0.1"));
+
+        limiter.recordError("10.0.0.1");
+
+        assertTrue(limiter.isLimited("10.0.0.1"));
+        assertFalse(limiter.isLimited("10.0.0.2"));
+    }
+
+    @Test
+    void testCountsHalvePerElapsedInterval() {
+        for (int i = 0; i < 8; i++) {
+            limiter.recordError("10.0.0.1");
+        }
+
+        clock.addAndGet(INTERVAL);
+        assertFalse(limiter.isLimited("10.0.0.1"));
+        assertEquals(4, limiter.estimate("10.0.0.1"));
+
+        clock.addAndGet(2 * INTERVAL);
+        assertFalse(limiter.isLimited("10.0.0.1"));
+        assertEquals(1, limiter.estimate("10.0.0.1"));
+    }
+
+    @Test
+    void testManyClientsDoNotLimitAQuietOne() {
+        for (int c = 0; c < 10_000; c++) {
+            limiter.recordError("client-" + c);
+        }
+
+        assertFalse(limiter.isLimited("quiet"));
+    }
+
+    @Test
+    void testKeysWithEqualHashCodesAreCountedApart() {
+        // "Aa" and "BB" have the same String.hashCode
+        for (int i = 0; i < 5; i++) {
+            limiter.recordError("client-Aa");
+        }
+
+        assertTrue(limiter.isLimited("client-Aa"));
+        assertFalse(limiter.isLimited("client-BB"));
+    }
+
+    @Test
+    void testCounterDecaysWhenNextTouched() {
+        for (int i = 0; i < 8; i++) {
+            limiter.recordError("10.0.0.1");
+        }
+        clock.addAndGet(INTERVAL);
+        limiter.recordError("10.0.0.1");
+
+        assertEquals(5, limiter.estimate("10.0.0.1"));
+    }
+}
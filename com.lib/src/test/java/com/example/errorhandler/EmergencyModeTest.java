@@ -0,0 +1,89 @@
+package com.example.errorhandler;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.Notification;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class EmergencyModeTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final MemoryPoolMXBean pool = mock(MemoryPoolMXBean.class);
+    private final EmergencyMode mode = new EmergencyMode(List.of(pool), Duration.ofSeconds(5), clock::get, null);
+
+    @Test
+    void testTriggerLastsForCooldown() {
+        assertFalse(mode.isActive());
+
+        mode.trigger("test");
+        clock.addAndGet(Duration.ofSeconds(4).toNanos());
+        assertTrue(mode.isActive());
+
+        clock.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertFalse(mode.isActive());
+    }
+
+    @Test
+    void testStaysActiveWhileHeapAboveThresholdAfterCollection() {
+        mode.handleNotification(new Notification(MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED,
+                "test", 1), null);
+        when(pool.isCollectionUsageThresholdExceeded()).thenReturn(true);
+        clock.addAndGet(Duration.ofSeconds(6).toNanos());
+        assertTrue(mode.isActive());
+
+        when(pool.isCollectionUsageThresholdExceeded()).thenReturn(false);
+        clock.addAndGet(Duration.ofSeconds(6).toNanos());
+        assertFalse(mode.isActive());
+    }
+
+    @Test
+    void testIgnoresOtherNotifications() {
+        mode.handleNotification(new Notification(MemoryNotificationInfo.MEMORY_THRESHOLD_EXCEEDED, "test", 1), null);
+
+        assertFalse(mode.isActive());
+    }
+
+    @Test
+    void testCloseRestoresPoolThresholds() {
+        List<MemoryPoolMXBean> pools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(p -> p.getType() == MemoryType.HEAP && p.isCollectionUsageThresholdSupported()
+                        && p.getUsage().getMax() > 0)
+                .toList();
+        long[] before = pools.stream().mapToLong(MemoryPoolMXBean::getCollectionUsageThreshold).toArray();
+
+        try (EmergencyMode outer = new EmergencyMode(95, Duration.ofSeconds(5))) {
+            new EmergencyMode(50, Duration.ofSeconds(5)).close();
+            for (MemoryPoolMXBean pool : pools) {
+                assertEquals(pool.getUsage().getMax() / 100 * 95, pool.getCollectionUsageThreshold());
+            }
+        }
+
+        assertArrayEquals(before, pools.stream().mapToLong(MemoryPoolMXBean::getCollectionUsageThreshold).toArray());
+    }
+
+    @Test
+    void testResponseIsPreallocated503() {
+        PrecomputedResponse response = mode.getResponse();
+
+        assertEquals(503, response.getStatus());
+        assertEquals("Retry-After", response.getHeaderName(0));
+        assertEquals("5", response.getHeaderValue(0));
+        assertEquals("{\"code\":\"ERR-005\",\"message\":\"Service temporarily unavailable.\","
+                        + "\"retryable\":true,\"retryAfterSeconds\":5}",
+                new String(response.getBody(), StandardCharsets.UTF_8));
+    }
+}
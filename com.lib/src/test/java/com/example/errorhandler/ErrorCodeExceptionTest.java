@@ -0,0 +1,110 @@
+package com.example.errorhandler;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ErrorCodeExceptionTest {
+
+    @AfterEach
+    void resetPolicy() {
+        StackTracePolicy.reset();
+    }
+
+    @Test
+    void testMessageIsRenderedLazilyFromArguments() {
+        CountingArgument argument = new CountingArgument("order 42");
+        ErrorCodeException e = new ErrorCodeException(ErrorCode.RESOURCE_NOT_FOUND, argument);
+        assertEquals(0, argument.rendered);
+
+        assertEquals("Resource not found: order 42.", e.getMessage());
+        assertEquals("Resource not found: order 42.", e.getMessage());
+        assertEquals(1, argument.rendered);
+    }
+
+    @Test
+    void testMapperDoesNotFormatTwice() {
+        ErrorCodeException e = new ErrorCodeException(ErrorCode.RESOURCE_NOT_FOUND, "42");
+        ErrorPayload payload = new DefaultErrorMapper().toError(e);
+        assertEquals("Resource not found: 42.", payload.message());
+    }
+
+    @Test
+    void testWithoutArgumentsUsesTemplate() {
+        ErrorCodeException e = new ErrorCodeException(ErrorCode.UNKNOWN_ERROR);
+        assertSame(ErrorCode.UNKNOWN_ERROR.getTemplate(), e.getMessage());
+        assertArrayEquals(ErrorCoded.NO_ARGUMENTS, e.getErrorArguments());
+    }
+
+    @Test
+    void testCause() {
+        IllegalStateException cause = new IllegalStateException();
+        ErrorCodeException e = new ErrorCodeException(ErrorCode.VALIDATION_FAILED, cause, "email");
+        assertSame(cause, e.getCause());
+        assertEquals("Validation failed for field: email.", e.getMessage());
+    }
+
+    @Test
+    void testFullStackTraceByDefault() {
+        ErrorCodeException e = new ErrorCodeException(ErrorCode.RESOURCE_NOT_FOUND, "42");
+        StackTraceElement[] trace = e.getStackTrace();
+        assertEquals("testFullStackTraceByDefault", trace[0].getMethodName());
+        assertTrue(trace.length > StackTracePolicy.getTopFrames());
+    }
+
+    @Test
+    void testStacklessMode() {
+        StackTracePolicy.setDefaultMode(StackTraceMode.NONE);
+        ErrorCodeException e = new ErrorCodeException(ErrorCode.RESOURCE_NOT_FOUND, "42");
+        assertEquals(0, e.getStackTrace().length);
+        assertEquals(ErrorCode.RESOURCE_NOT_FOUND.getCode(), new DefaultErrorMapper().toError(e).code());
+    }
+
+    @Test
+    void testTopFramesModePerCode() {
+        StackTracePolicy.setMode(ErrorCode.VALIDATION_FAILED, StackTraceMode.TOP_FRAMES);
+        StackTracePolicy.setTopFrames(2);
+
+        StackTraceElement[] top = new ErrorCodeException(ErrorCode.VALIDATION_FAILED, "email").getStackTrace();
+        assertEquals(2, top.length);
+        assertEquals("testTopFramesModePerCode", top[0].getMethodName());
+        assertEquals(getClass().getName(), top[0].getClassName());
+
+        StackTraceElement[] full = new ErrorCodeException(ErrorCode.RESOURCE_NOT_FOUND, "42").getStackTrace();
+        assertTrue(full.length > 2);
+    }
+
+    @Test
+    void testPreallocatedInstanceIsSharedAndImmutable() {
+        ErrorCodeException e = ErrorCodeException.preallocated(ErrorCode.UNKNOWN_ERROR);
+        assertSame(e, ErrorCodeException.preallocated(ErrorCode.UNKNOWN_ERROR));
+        assertEquals(0, e.getStackTrace().length);
+        assertEquals(ErrorCode.UNKNOWN_ERROR.getTemplate(), e.getMessage());
+
+        e.addSuppressed(new RuntimeException());
+        assertEquals(0, e.getSuppressed().length);
+        assertThrows(IllegalStateException.class, () -> e.initCause(new RuntimeException()));
+        assertTrue(new DefaultErrorMapper().toError(e).isTemplateMessage());
+    }
+
+    @Test
+    void testPreallocationRequiresParameterlessCode() {
+        assertThrows(IllegalArgumentException.class, () -> ErrorCodeException.preallocated(ErrorCode.RESOURCE_NOT_FOUND));
+    }
+
+    private static final class CountingArgument {
+        private final String value;
+        private int rendered;
+
+        CountingArgument(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public String toString() {
+            rendered++;
+            return value;
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package com.example.errorhandler;
 
 import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class ErrorCodeTest {
@@ -10,4 +13,43 @@ class ErrorCodeTest {
         assertEquals("ERR-001", code.getCode());
         assertTrue(code.getTemplate().contains("%s"));
     }
+
+    @Test
+    void testHttpStatusAndLookupByCode() {
+        assertEquals(404, ErrorCode.RESOURCE_NOT_FOUND.getHttpStatus());
+        assertSame(ErrorCode.PERMISSION_DENIED, ErrorCode.fromCode("ERR-003"));
+        assertNull(ErrorCode.fromCode("ERR-999"));
+    }
+
+    @Test
+    void testRetryPolicy() {
+        assertTrue(ErrorCode.SERVICE_UNAVAILABLE.isRetryable());
+        assertFalse(ErrorCode.VALIDATION_FAILED.isRetryable());
+        assertNull(ErrorCode.UNKNOWN_ERROR.getRetryPolicy());
+
+        RetryPolicy policy = ErrorCode.SERVICE_UNAVAILABLE.getRetryPolicy();
+        assertEquals(1, policy.delaySeconds(0));
+        assertEquals(16, policy.delaySeconds(0.5));
+        assertEquals(30, policy.delaySeconds(1));
+        assertEquals(30, policy.delaySeconds(7));
+    }
+
+    @Test
+    void testJitterStaysWithinPolicyBounds() {
+        RetryPolicy policy = ErrorCode.SERVICE_UNAVAILABLE.getRetryPolicy();
+        Random random = new Random(42);
+        boolean below = false;
+        boolean above = false;
+        for (int i = 0; i < 1000; i++) {
+            long delay = policy.jitteredDelaySeconds(0.5, random);
+            assertTrue(delay >= 12 && delay <= 20, "delay " + delay);
+            below |= delay < 16;
+            above |= delay > 16;
+        }
+        assertTrue(below && above);
+        for (int i = 0; i < 100; i++) {
+            long idle = policy.jitteredDelaySeconds(0, random);
+            assertTrue(idle >= 1 && idle <= 2, "delay " + idle);
+        }
+    }
 }
@@ -0,0 +1,118 @@
+package com.example.errorhandler;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ErrorEventPipelineTest {
+
+    @Test
+    void testConcurrentProducersLoseNothingWithBlockPolicy() throws Exception {
+        Set<ErrorEvent> seen = ConcurrentHashMap.newKeySet();
+        AtomicInteger batches = new AtomicInteger();
+        ErrorEventPipeline pipeline = new ErrorEventPipeline(16, OverflowPolicy.BLOCK, List.of(new ErrorEventHandler() {
+            @Override
+            public void onEvent(ErrorEvent event) {
+                seen.add(event);
+            }
+
+            @Override
+            public void endOfBatch() {
+                batches.incrementAndGet();
+            }
+        }));
+        int producers = 8;
+        int perProducer = 5_000;
+        ExecutorService pool = Executors.newFixedThreadPool(producers);
+        try {
+            for (int p = 0; p < producers; p++) {
+                pool.submit(() -> {
+                    for (int i = 0; i < perProducer; i++) {
+                        assertTrue(pipeline.publish(event()));
+                    }
+                });
+            }
+        } finally {
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+        }
+
+        assertTrue(pipeline.close(Duration.ofSeconds(10)));
+        assertEquals(producers * perProducer, seen.size());
+        assertTrue(batches.get() > 0);
+    }
+
+    @Test
+    void testDropPolicyCountsOverflow() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicInteger handled = new AtomicInteger();
+        ErrorEventPipeline pipeline = new ErrorEventPipeline(4, OverflowPolicy.DROP, List.of(event -> {
+            started.countDown();
+            await(release);
+            handled.incrementAndGet();
+        }));
+
+        assertTrue(pipeline.publish(event()));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        int accepted = 1;
+        for (int i = 0; i < 10; i++) {
+            if (pipeline.publish(event())) {
+                accepted++;
+            }
+        }
+        assertEquals(5, accepted);
+        assertEquals(6, pipeline.droppedSinceLastReport());
+
+        release.countDown();
+        assertTrue(pipeline.close(Duration.ofSeconds(5)));
+        assertEquals(accepted, handled.get());
+    }
+
+    @Test
+    void testFailingHandlerDoesNotStopOthers() {
+        AtomicInteger handled = new AtomicInteger();
+        ErrorEventPipeline pipeline = new ErrorEventPipeline(8, OverflowPolicy.DROP, List.of(
+                event -> {
+                    throw new IllegalStateException("exporter down");
+                },
+                event -> handled.incrementAndGet()));
+
+        pipeline.publish(event());
+        pipeline.publish(event());
+
+        assertTrue(pipeline.close(Duration.ofSeconds(5)));
+        assertEquals(2, handled.get());
+    }
+
+    @Test
+    void testPublishAfterCloseIsDropped() {
+        ErrorEventPipeline pipeline = new ErrorEventPipeline(8, OverflowPolicy.BLOCK, List.of(event -> {
+        }));
+        assertTrue(pipeline.close(Duration.ofSeconds(5)));
+        assertFalse(pipeline.publish(event()));
+    }
+
+    private static ErrorEvent event() {
+        return new ErrorEvent(new IllegalStateException(), new ErrorPayload(ErrorCode.UNKNOWN_ERROR, "x"),
+                LogPolicy.SERVER_ERROR, System.currentTimeMillis());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.errorhandler;
+
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ErrorHandlingHttpHandlerTest {
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private HttpServer server;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        route("/ok", exchange -> {
+            byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        route("/coded", exchange -> {
+            throw new ErrorCodeException(ErrorCode.RESOURCE_NOT_FOUND);
+        });
+        route("/invalid", exchange -> {
+            throw new IllegalArgumentException("name");
+        });
+        route("/busy", exchange -> {
+            throw new RejectedExecutionException("queue full");
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void testPassesSuccessfulExchangesThrough() throws Exception {
+        HttpResponse<String> response = get("/ok");
+
+        assertEquals(200, response.statusCode());
+        assertEquals("ok", response.body());
+    }
+
+    @Test
+    void testTemplateMessageUsesPrecomputedResponse() throws Exception {
+        HttpResponse<String> response = get("/coded");
+
+        assertEquals(404, response.statusCode());
+        assertEquals("{\"code\":\"ERR-002\",\"message\":\"Resource not found.\"}", response.body());
+        assertEquals(JsonErrorWriter.CONTENT_TYPE, response.headers().firstValue("Content-Type").orElseThrow());
+        assertEquals(String.valueOf(response.body().length()),
+                response.headers().firstValue("Content-Length").orElseThrow());
+        assertEquals("private, max-age=60", response.headers().firstValue("Cache-Control").orElseThrow());
+    }
+
+    @Test
+    void testRendersMappedMessage() throws Exception {
+        HttpResponse<String> response = get("/invalid");
+
+        assertEquals(400, response.statusCode());
+        assertEquals("{\"code\":\"ERR-001\",\"message\":\"Validation failed for field: name.\"}", response.body());
+        assertEquals("no-store", response.headers().firstValue("Cache-Control").orElseThrow());
+    }
+
+    @Test
+    void testRetryableErrorCarriesRetryAfter() throws Exception {
+        HttpResponse<String> response = get("/busy");
+
+        assertEquals(503, response.statusCode());
+        long retryAfter = Long.parseLong(response.headers().firstValue("Retry-After").orElseThrow());
+        assertTrue(retryAfter >= 1 && retryAfter <= 30);
+        assertTrue(response.body().endsWith(",\"retryable\":true,\"retryAfterSeconds\":" + retryAfter + "}"));
+    }
+
+    @Test
+    void testStatusResolverAndHeadRequest() throws Exception {
+        server.removeContext("/coded");
+        server.createContext("/coded", new ErrorHandlingHttpHandler(new DefaultErrorMapper(),
+                code -> code == ErrorCode.RESOURCE_NOT_FOUND ? 410 : code.getHttpStatus(),
+                exchange -> {
+                    throw new ErrorCodeException(ErrorCode.RESOURCE_NOT_FOUND);
+                }));
+
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri("/coded"))
+                .method("HEAD", HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(410, response.statusCode());
+        assertEquals("", response.body());
+    }
+
+    @Test
+    void testRouteCacheControlOverride() throws Exception {
+        ErrorHandlingHttpHandler handler = new ErrorHandlingHttpHandler(new DefaultErrorMapper(), exchange -> {
+            throw new ErrorCodeException(ErrorCode.RESOURCE_NOT_FOUND, "app.js");
+        });
+        handler.setCacheControl("/static/", ErrorCode.RESOURCE_NOT_FOUND, "max-age=300");
+        server.createContext("/static", handler);
+
+        HttpResponse<String> response = get("/static/app.js");
+
+        assertEquals(404, response.statusCode());
+        assertEquals("{\"code\":\"ERR-002\",\"message\":\"Resource not found: app.js.\"}", response.body());
+        assertEquals("max-age=300", response.headers().firstValue("Cache-Control").orElseThrow());
+    }
+
+    @Test
+    void testClientOverErrorLimitGets429BeforeDelegate() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        ErrorHandlingHttpHandler handler = new ErrorHandlingHttpHandler(new DefaultErrorMapper(), exchange -> {
+            calls.incrementAndGet();
+            throw new IllegalArgumentException("name");
+        });
+        handler.enableClientErrorLimit(new ClientErrorLimiter(2, Duration.ofMinutes(1)), "X-Client");
+        server.createContext("/limited", handler);
+
+        for (int i = 0; i < 2; i++) {
+            assertEquals(400, get("/limited", "X-Client", "a").statusCode());
+        }
+        HttpResponse<String> limited = get("/limited", "X-Client", "a");
+
+        assertEquals(429, limited.statusCode());
+        assertTrue(limited.headers().firstValue("Retry-After").isPresent());
+        assertEquals(400, get("/limited", "X-Client", "b").statusCode());
+        assertEquals(3, calls.get());
+    }
+
+    @Test
+    void testErrorStormShedsRoute() throws Exception {
+        AtomicLong clock = new AtomicLong();
+        AtomicInteger calls = new AtomicInteger();
+        ErrorHandlingHttpHandler handler = new ErrorHandlingHttpHandler(new DefaultErrorMapper(), exchange -> {
+            calls.incrementAndGet();
+            throw new IllegalArgumentException("name");
+        });
+        handler.enableErrorStormProtection(
+                new ErrorStormDetector(Duration.ofSeconds(1), 50, 20, 2, clock::get), true, 1);
+        server.createContext("/storm", handler);
+
+        get("/storm/1");
+        get("/storm/2");
+        // complete the bucket so the detector judges it
+        clock.addAndGet(Duration.ofMillis(100).toNanos());
+        HttpResponse<String> degraded = get("/storm/3");
+        HttpResponse<String> probe = get("/storm/4");
+        HttpResponse<String> shed = get("/storm/5");
+
+        assertEquals("{\"code\":\"ERR-001\",\"message\":\"Validation failed for field.\"}", degraded.body());
+        assertEquals(400, probe.statusCode());
+        assertEquals(503, shed.statusCode());
+        assertEquals(4, calls.get());
+    }
+
+    private void route(String path, HttpHandler handler) {
+        server.createContext(path, new ErrorHandlingHttpHandler(new DefaultErrorMapper(), handler));
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        return client.send(HttpRequest.newBuilder(uri(path)).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> get(String path, String header, String value) throws Exception {
+        return client.send(HttpRequest.newBuilder(uri(path)).header(header, value).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort() + path);
+    }
+}
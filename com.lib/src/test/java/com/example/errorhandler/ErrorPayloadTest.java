@@ -2,6 +2,7 @@ package com.example.errorhandler;
 
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 
 class ErrorPayloadTest {
     @Test
@@ -10,4 +11,14 @@ class ErrorPayloadTest {
         assertEquals("ERR-123",payload.code());
         assertEquals("Test message", payload.message());
     }
+
+    @Test
+    void testEqualityIgnoresTheSourceErrorCode() {
+        ErrorPayload fromCode = new ErrorPayload(ErrorCode.RESOURCE_NOT_FOUND, "Resource not found: 42.");
+        ErrorPayload fromString = new ErrorPayload("ERR-002", "Resource not found: 42.");
+
+        assertEquals(fromString, fromCode);
+        assertEquals(fromString.hashCode(), fromCode.hashCode());
+        assertNotEquals(new ErrorPayload("ERR-002", "Resource not found: 43."), fromCode);
+    }
 }
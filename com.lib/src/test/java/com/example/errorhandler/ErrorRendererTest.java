@@ -0,0 +1,121 @@
+package com.example.errorhandler;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.MissingFormatArgumentException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ErrorRendererTest {
+
+    @Test
+    void testRendersPayloadIntoHeapBuffer() {
+        ErrorPayload payload = new ErrorPayload(ErrorCode.RESOURCE_NOT_FOUND, "Resource not found: \"A-42\".");
+        ByteBuffer dst = ByteBuffer.allocate(128);
+        dst.put((byte) '[');
+
+        int written = ErrorRenderer.render(payload, dst);
+
+        assertEquals(ErrorRenderer.encodedLength(payload), written);
+        assertEquals(1 + written, dst.position());
+        assertEquals("[" + new String(JsonErrorWriter.encode(payload), StandardCharsets.UTF_8), contents(dst));
+    }
+
+    @Test
+    void testRendersPayloadIntoDirectBufferWithRetryHint() {
+        ErrorPayload payload = new ErrorPayload(ErrorCode.SERVICE_UNAVAILABLE, "Busy.");
+        ByteBuffer dst = ByteBuffer.allocateDirect(128);
+
+        ErrorRenderer.render(payload, 7, dst);
+
+        assertEquals(new String(JsonErrorWriter.encode(payload, 7), StandardCharsets.UTF_8), contents(dst));
+    }
+
+    @Test
+    void testRendersCodeWithArgumentsLikeTheMapper() {
+        assertRendersAsFormatted(ErrorCode.RESOURCE_NOT_FOUND, "A-42");
+        assertRendersAsFormatted(ErrorCode.VALIDATION_FAILED, "naïve \"name\"\n");
+        assertRendersAsFormatted(ErrorCode.RESOURCE_NOT_FOUND, Long.MIN_VALUE);
+        assertRendersAsFormatted(ErrorCode.RESOURCE_NOT_FOUND, 4711);
+        assertRendersAsFormatted(ErrorCode.RESOURCE_NOT_FOUND, new StringBuilder("sb"));
+        assertRendersAsFormatted(ErrorCode.RESOURCE_NOT_FOUND, (Object) null);
+    }
+
+    @Test
+    void testCodeWithoutArgumentsUsesTemplate() {
+        ByteBuffer dst = ByteBuffer.allocateDirect(128);
+
+        ErrorRenderer.render(ErrorCode.RESOURCE_NOT_FOUND, dst);
+
+        assertEquals("{\"code\":\"ERR-002\",\"message\":\"Resource not found.\"}", contents(dst));
+    }
+
+    @Test
+    void testArgumentWithUnstableToStringIsRenderedOnce() {
+        Object counter = new Object() {
+            private int calls;
+
+            @Override
+            public String toString() {
+                return "x".repeat(++calls);
+            }
+        };
+        ByteBuffer dst = ByteBuffer.allocate(128);
+
+        int written = ErrorRenderer.render(ErrorCode.RESOURCE_NOT_FOUND, dst, counter);
+
+        assertEquals(written, dst.position());
+        assertEquals("{\"code\":\"ERR-002\",\"message\":\"Resource not found: x.\"}", contents(dst));
+    }
+
+    @Test
+    void testOverflowWritesNothing() {
+        ByteBuffer dst = ByteBuffer.allocate(16);
+
+        assertThrows(BufferOverflowException.class,
+                () -> ErrorRenderer.render(ErrorCode.RESOURCE_NOT_FOUND, dst, "A-42"));
+        assertEquals(0, dst.position());
+    }
+
+    @Test
+    void testMissingArgument() {
+        MessageTemplate template = MessageTemplate.compile("%1$s and %2$s");
+        assertThrows(MissingFormatArgumentException.class,
+                () -> MessageTemplate.stableArguments(template, new Object[]{"one"}));
+    }
+
+    @Test
+    void testWritesToChannel() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        int written = ErrorRenderer.write(ErrorCode.RESOURCE_NOT_FOUND, Channels.newChannel(out), "A-42");
+        written += ErrorRenderer.write(new ErrorPayload(ErrorCode.UNKNOWN_ERROR, "boom"), Channels.newChannel(out));
+
+        assertEquals(out.size(), written);
+        assertEquals("{\"code\":\"ERR-002\",\"message\":\"Resource not found: A-42.\"}"
+                + "{\"code\":\"ERR-000\",\"message\":\"boom\"}", out.toString(StandardCharsets.UTF_8));
+    }
+
+    private static void assertRendersAsFormatted(ErrorCode code, Object arg) {
+        byte[] expected = JsonErrorWriter.encode(new ErrorPayload(code, String.format(code.getTemplate(), arg)));
+        ByteBuffer dst = ByteBuffer.allocate(ErrorRenderer.encodedLength(code, arg));
+
+        ErrorRenderer.render(code, dst, arg);
+
+        assertEquals(0, dst.remaining());
+        assertArrayEquals(expected, dst.array());
+    }
+
+    private static String contents(ByteBuffer dst) {
+        byte[] bytes = new byte[dst.position()];
+        dst.flip().get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.errorhandler;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ErrorResponderTest {
+
+    private final ErrorResponder responder = new ErrorResponder(new DefaultErrorMapper());
+
+    @Test
+    void testCodedExceptionIsEncodedWithoutRenderingItsMessage() {
+        responder.setLogPolicy(ErrorCode.RESOURCE_NOT_FOUND, LogPolicy.OFF);
+        AtomicInteger messages = new AtomicInteger();
+        ErrorCodeException ex = new ErrorCodeException(ErrorCode.RESOURCE_NOT_FOUND, "A-42") {
+            @Override
+            public String getMessage() {
+                messages.incrementAndGet();
+                return super.getMessage();
+            }
+        };
+
+        PrecomputedResponse response = responder.respond(ex, "/orders/A-42", null, null);
+
+        assertEquals(404, response.getStatus());
+        assertEquals("{\"code\":\"ERR-002\",\"message\":\"Resource not found: A-42.\"}", body(response));
+        assertEquals(1, response.getHeaderCount());
+        assertEquals("Cache-Control", response.getHeaderName(0));
+        assertEquals("private, max-age=60", response.getHeaderValue(0));
+        assertEquals(0, messages.get());
+    }
+
+    @Test
+    void testTemplateMessageIsSharedPerRoute() {
+        responder.setCacheControl("/static/", ErrorCode.RESOURCE_NOT_FOUND, "max-age=300");
+        Throwable ex = new ErrorCodeException(ErrorCode.RESOURCE_NOT_FOUND);
+
+        PrecomputedResponse first = responder.respond(ex, "/static/app.js", null, null);
+
+        assertSame(first, responder.respond(ex, "/static/app.css", null, null));
+        assertEquals("max-age=300", first.getHeaderValue(0));
+        assertEquals("private, max-age=60", responder.respond(ex, "/api/x", null, null).getHeaderValue(0));
+    }
+
+    @Test
+    void testRetryableErrorGetsMatchingHeaderAndHint() {
+        PrecomputedResponse response = responder.respond(new RejectedExecutionException("queue full"), "/", null, null);
+
+        assertEquals(503, response.getStatus());
+        assertEquals("Retry-After", response.getHeaderName(0));
+        assertTrue(body(response).endsWith(",\"retryAfterSeconds\":" + response.getHeaderValue(0) + "}"));
+    }
+
+    @Test
+    void testUnknownCodeStringFallsBackTo500WithoutCacheControl() {
+        ErrorResponder custom = new ErrorResponder(t -> new ErrorPayload("BILLING-7", "Card declined."));
+
+        PrecomputedResponse response = custom.respond(new IllegalStateException(), "/", null, null);
+
+        assertEquals(500, response.getStatus());
+        assertEquals(0, response.getHeaderCount());
+        assertEquals("{\"code\":\"BILLING-7\",\"message\":\"Card declined.\"}", body(response));
+    }
+
+    @Test
+    void testDefaultMessageFromCodeStringIsRenderedForItsCode() {
+        ErrorCode code = ErrorCode.RESOURCE_NOT_FOUND;
+        ErrorResponder custom = new ErrorResponder(t -> new ErrorPayload(code.getCode(), code.getDefaultMessage()));
+
+        PrecomputedResponse response = custom.respond(new IllegalStateException(), "/", null, null);
+
+        assertEquals(404, response.getStatus());
+        assertEquals("private, max-age=60", response.getHeaderValue(0));
+        assertEquals("{\"code\":\"ERR-002\",\"message\":\"" + code.getDefaultMessage() + "\"}", body(response));
+    }
+
+    @Test
+    void testDefaultMessageUnderAnotherCodeStringKeepsThatString() {
+        ErrorCode code = ErrorCode.RESOURCE_NOT_FOUND;
+        ErrorResponder custom = new ErrorResponder(t -> new ErrorPayload("CATALOG-404", code.getDefaultMessage(), code));
+
+        PrecomputedResponse response = custom.respond(new IllegalStateException(), "/", null, null);
+
+        assertEquals(404, response.getStatus());
+        assertEquals("{\"code\":\"CATALOG-404\",\"message\":\"" + code.getDefaultMessage() + "\"}", body(response));
+    }
+
+    @Test
+    void testClientOverLimitIsRefusedBeforeTheApplicationRuns() {
+        responder.enableClientErrorLimit(new ClientErrorLimiter(2, Duration.ofMinutes(1)), null);
+        Throwable ex = new IllegalArgumentException("name");
+
+        assertNull(responder.admit("/", null, "192.0.2.1"));
+        responder.respond(ex, "/", null, "192.0.2.1");
+        responder.respond(ex, "/", null, "192.0.2.1");
+
+        assertEquals(429, responder.admit("/", null, "192.0.2.1").getStatus());
+        assertNull(responder.admit("/", null, "192.0.2.2"));
+    }
+
+    private static String body(PrecomputedResponse response) {
+        return new String(response.getBody(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.errorhandler;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ErrorStormDetectorTest {
+
+    private static final long BUCKET = Duration.ofSeconds(1).toNanos();
+
+    private final AtomicLong clock = new AtomicLong(BUCKET * 1000);
+    private final ErrorStormDetector detector = new ErrorStormDetector(Duration.ofSeconds(10), 50, 20, 20, clock::get);
+
+    @Test
+    void testEntersAboveThresholdOnceBucketCompletes() {
+        ErrorStormDetector.Route route = detector.route("/orders");
+        record(route, 20, 10);
+        assertFalse(route.isDegraded());
+
+        clock.addAndGet(BUCKET);
+        route.record(false);
+
+        assertTrue(route.isDegraded());
+    }
+
+    @Test
+    void testTooFewRequestsNeverDegrade() {
+        ErrorStormDetector.Route route = detector.route("/orders");
+        record(route, 19, 19);
+
+        clock.addAndGet(BUCKET);
+        route.record(false);
+
+        assertFalse(route.isDegraded());
+    }
+
+    @Test
+    void testRecoversOnlyBelowExitThreshold() {
+        ErrorStormDetector.Route route = detector.route("/orders");
+        record(route, 20, 20);
+        clock.addAndGet(BUCKET);
+
+        // 30% errors is below the enter threshold but above the exit threshold
+        recordBuckets(route, 11, 10, 3);
+        route.record(false);
+        assertTrue(route.isDegraded());
+
+        recordBuckets(route, 11, 10, 1);
+        route.record(false);
+        assertFalse(route.isDegraded());
+    }
+
+    @Test
+    void testRecoversAfterQuietWindow() {
+        ErrorStormDetector.Route route = detector.route("/orders");
+        record(route, 20, 20);
+        clock.addAndGet(BUCKET);
+        route.record(false);
+        assertTrue(route.isDegraded());
+
+        clock.addAndGet(BUCKET * 20);
+        route.record(false);
+
+        assertFalse(route.isDegraded());
+    }
+
+    @Test
+    void testAdmitsOneProbeInTen() {
+        ErrorStormDetector.Route route = detector.route("/orders");
+        int admitted = 0;
+        for (int i = 0; i < 100; i++) {
+            if (route.admitProbe()) {
+                admitted++;
+            }
+        }
+        assertEquals(10, admitted);
+    }
+
+    @Test
+    void testSameRouteSameSlot() {
+        assertSame(detector.route("/orders"), detector.route(new String("/orders")));
+        assertNotSame(detector.route("/a"), detector.route("/b"));
+    }
+
+    @Test
+    void testRoutesWithEqualHashesAreTrackedApart() {
+        // "Aa" and "BB" have the same hash code
+        ErrorStormDetector.Route failing = detector.route("/Aa");
+        ErrorStormDetector.Route healthy = detector.route("/BB");
+        assertNotSame(failing, healthy);
+
+        record(failing, 20, 20);
+        clock.addAndGet(BUCKET);
+        failing.record(false);
+        healthy.record(false);
+
+        assertTrue(failing.isDegraded());
+        assertFalse(healthy.isDegraded());
+    }
+
+    @Test
+    void testRouteIsUntrackedUntilACollidingRouteGoesIdle() {
+        String[] colliding = collidingRoutes();
+        for (int i = 0; i < 8; i++) {
+            detector.route(colliding[i]).record(false);
+        }
+        assertNull(detector.route(colliding[8]));
+
+        clock.addAndGet(BUCKET * 10);
+        ErrorStormDetector.Route route = detector.route(colliding[8]);
+
+        assertNotNull(route);
+        assertSame(route, detector.route(colliding[8]));
+    }
+
+    @Test
+    void testRouteKeyCollapsesPathParameters() {
+        assertEquals("/orders/*/items", ErrorStormDetector.routeKey("/orders/42/items"));
+        assertEquals("/orders/*", ErrorStormDetector.routeKey("/orders/7f3a-b1"));
+        String plain = "/orders/items";
+        assertSame(plain, ErrorStormDetector.routeKey(plain));
+    }
+
+    @Test
+    void testRejectsExitAboveEnter() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new ErrorStormDetector(Duration.ofSeconds(10), 20, 50, 20));
+    }
+
+    /** Routes whose hash codes are all equal: "Aa" and "BB" hash alike. */
+    private static String[] collidingRoutes() {
+        String[] routes = new String[16];
+        for (int i = 0; i < routes.length; i++) {
+            StringBuilder route = new StringBuilder("/");
+            for (int bit = 0; bit < 4; bit++) {
+                route.append((i >> bit & 1) == 0 ? "Aa" : "BB");
+            }
+            routes[i] = route.toString();
+        }
+        return routes;
+    }
+
+    private void recordBuckets(ErrorStormDetector.Route route, int buckets, int requests, int failures) {
+        for (int b = 0; b < buckets; b++) {
+            record(route, requests, failures);
+            clock.addAndGet(BUCKET);
+        }
+    }
+
+    private static void record(ErrorStormDetector.Route route, int requests, int failures) {
+        for (int i = 0; i < requests; i++) {
+            route.record(i < failures);
+        }
+    }
+}
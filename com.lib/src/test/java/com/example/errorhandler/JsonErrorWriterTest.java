@@ -0,0 +1,54 @@
+package com.example.errorhandler;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class JsonErrorWriterTest {
+
+    @Test
+    void testPlainAscii() {
+        assertJson("{\"code\":\"ERR-000\",\"message\":\"An unknown error occurred.\"}",
+                new ErrorPayload("ERR-000", "An unknown error occurred."));
+    }
+
+    @Test
+    void testEscapesQuotesBackslashesAndControlCharacters() {
+        assertJson("{\"code\":\"ERR-001\",\"message\":\"a\\\"b\\\\c\\nd\\te\\u0001\\u2028\"}",
+                new ErrorPayload("ERR-001", "a\"b\\c\nd\te\u0001\u2028"));
+    }
+
+    @Test
+    void testEncodesNonAsciiAsUtf8() {
+        String message = "Größe 日本 😀";
+        byte[] body = JsonErrorWriter.encode(new ErrorPayload("ERR-002", message));
+        assertEquals("{\"code\":\"ERR-002\",\"message\":\"" + message + "\"}",
+                new String(body, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testUnpairedSurrogateIsReplaced() {
+        assertJson("{\"code\":\"ERR-002\",\"message\":\"x?y\"}", new ErrorPayload("ERR-002", "x\uD83Dy"));
+    }
+
+    @Test
+    void testNullMessage() {
+        assertJson("{\"code\":\"ERR-000\",\"message\":null}", new ErrorPayload("ERR-000", null));
+    }
+
+    @Test
+    void testRetryHint() {
+        byte[] body = JsonErrorWriter.encode(new ErrorPayload("ERR-005", "Busy \"now\""), 12);
+
+        assertEquals("{\"code\":\"ERR-005\",\"message\":\"Busy \\\"now\\\"\",\"retryable\":true,\"retryAfterSeconds\":12}",
+                new String(body, StandardCharsets.UTF_8));
+    }
+
+    private static void assertJson(String expected, ErrorPayload payload) {
+        byte[] body = JsonErrorWriter.encode(payload);
+        assertEquals(JsonErrorWriter.encodedLength(payload), body.length);
+        assertEquals(expected, new String(body, StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.errorhandler;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.event.Level;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogPolicyTest {
+
+    @Test
+    void testParse() {
+        assertSame(LogPolicy.OFF, LogPolicy.parse("off"));
+        assertEquals(new LogPolicy(Level.INFO, false), LogPolicy.parse("INFO"));
+        assertEquals(new LogPolicy(Level.ERROR, true), LogPolicy.parse(" error , stacktrace "));
+        assertThrows(IllegalArgumentException.class, () -> LogPolicy.parse("WARN,verbose"));
+        assertThrows(IllegalArgumentException.class, () -> LogPolicy.parse("LOUD"));
+    }
+
+    @Test
+    void testDefaultsByStatus() {
+        assertEquals(LogPolicy.CLIENT_ERROR, LogPolicy.forStatus(404));
+        assertEquals(LogPolicy.SERVER_ERROR, LogPolicy.forStatus(500));
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.errorhandler;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Gives tests outside this package detectors that read a clock the test advances.
+ */
+public final class ManualClockDetectors {
+
+    private ManualClockDetectors() {
+    }
+
+    public static ErrorStormDetector errorStormDetector(Duration window, int enterPercent, int exitPercent,
+                                                        int minRequests, LongSupplier clock) {
+        return new ErrorStormDetector(window, enterPercent, exitPercent, minRequests, clock);
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.errorhandler;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.MissingFormatArgumentException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageTemplateTest {
+
+    @Test
+    void testRendersLikeStringFormat() {
+        for (ErrorCode code : ErrorCode.values()) {
+            MessageTemplate template = code.getMessageTemplate();
+            if (template.hasArguments()) {
+                assertEquals(String.format(code.getTemplate(), "id-1"), template.render("id-1"));
+                assertEquals(String.format(code.getTemplate(), 42L), template.render(42L));
+                assertEquals(String.format(code.getTemplate(), (Object) null), template.render((Object) null));
+            } else {
+                assertEquals(code.getTemplate(), template.render());
+            }
+        }
+    }
+
+    @Test
+    void testPositionalAndEscapedSpecifiers() {
+        String pattern = "%2$s then %1$s, %s%% of %s%n";
+        MessageTemplate template = MessageTemplate.compile(pattern);
+        assertEquals(String.format(pattern, "a", "b"), template.render("a", "b"));
+    }
+
+    @Test
+    void testUnsupportedSpecifierFallsBackToFormat() {
+        String pattern = "Retry in %d seconds (%.1f%%)";
+        MessageTemplate template = MessageTemplate.compile(pattern);
+        assertTrue(template.hasArguments());
+        assertEquals(String.format(pattern, 5, 12.5), template.render(5, 12.5));
+    }
+
+    @Test
+    void testMissingArgumentFailsLikeFormat() {
+        MessageTemplate template = MessageTemplate.compile("%s and %s");
+        assertThrows(MissingFormatArgumentException.class, () -> template.render("only"));
+    }
+
+    @Test
+    void testTemplateWithoutArguments() {
+        MessageTemplate template = ErrorCode.UNKNOWN_ERROR.getMessageTemplate();
+        assertFalse(template.hasArguments());
+        assertSame(ErrorCode.UNKNOWN_ERROR.getTemplate(), template.render("ignored"));
+    }
+
+    @Test
+    void testWithoutArgumentsDropsSlotsAndTheirLeadIn() {
+        assertEquals("Resource not found.", ErrorCode.RESOURCE_NOT_FOUND.getDefaultMessage());
+        assertEquals("User not authorized.", MessageTemplate.compile("User %s not authorized.").withoutArguments());
+        assertEquals("is invalid", MessageTemplate.compile("%s is invalid").withoutArguments());
+        assertSame(ErrorCode.UNKNOWN_ERROR.getTemplate(), ErrorCode.UNKNOWN_ERROR.getDefaultMessage());
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.errorhandler;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResponseTableTest {
+
+    private final int[] statuses = ResponseTable.resolveStatuses(StatusResolver.DEFAULT);
+
+    @Test
+    void testDefaultCapCoversEveryBuiltInRetryPolicy() {
+        for (ErrorCode code : ErrorCode.values()) {
+            if (code.isRetryable()) {
+                assertTrue(code.getRetryPolicy().getMaxDelaySeconds() <= ResponseTable.MAX_PRECOMPUTED_DELAY_SECONDS);
+            }
+        }
+    }
+
+    @Test
+    void testDelaysPastTheCapAreRenderedOnDemand() {
+        ResponseTable table = new ResponseTable(statuses, ResponseTable.defaultCacheControl(statuses), 10);
+        ErrorCode code = ErrorCode.SERVICE_UNAVAILABLE;
+
+        assertSame(table.retry(code, 10), table.retry(code, 10));
+
+        PrecomputedResponse rendered = table.retry(code, 25);
+        assertNotSame(rendered, table.retry(code, 25));
+        assertEquals(503, rendered.getStatus());
+        assertEquals("25", rendered.getHeaderValue(0));
+        assertEquals("no-store", rendered.getHeaderValue(1));
+        assertTrue(new String(rendered.getBody(), StandardCharsets.UTF_8).endsWith(",\"retryAfterSeconds\":25}"));
+    }
+
+    @Test
+    void testCapSurvivesHeaderChanges() {
+        ResponseTable table = new ResponseTable(statuses, ResponseTable.defaultCacheControl(statuses), 10)
+                .withCacheControl(ErrorCode.SERVICE_UNAVAILABLE, null);
+
+        PrecomputedResponse rendered = table.retry(ErrorCode.SERVICE_UNAVAILABLE, 25);
+
+        assertNotSame(rendered, table.retry(ErrorCode.SERVICE_UNAVAILABLE, 25));
+        assertEquals(1, rendered.getHeaderCount());
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.errorhandler;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.event.Level;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ThrottledErrorLoggerTest {
+
+    private Logger log;
+    private long now;
+    private ThrottledErrorLogger logger;
+    private Throwable boom;
+
+    @BeforeEach
+    void setUp() {
+        log = mock(Logger.class);
+        when(log.isEnabledForLevel(any())).thenReturn(true);
+        logger = new ThrottledErrorLogger(log, Duration.ofSeconds(60), 2, Duration.ofSeconds(10), () -> now, 256);
+        boom = failure("boom");
+    }
+
+    @Test
+    void testStackTraceLoggedOncePerWindow() {
+        for (int i = 0; i < 100; i++) {
+            logger.log(boom);
+        }
+
+        verify(log, times(1)).error(eq("boom"), any(Throwable.class));
+        verify(log, never()).error(anyString(), anyString(), any(), any());
+    }
+
+    @Test
+    void testSummaryReportsSuppressedCount() {
+        logger.log(boom);
+        for (int i = 0; i < 4; i++) {
+            logger.log(boom);
+        }
+        advance(10);
+        logger.log(boom);
+
+        verify(log).error("{}: {} (seen {} more times)", IllegalStateException.class.getName(), "boom", 5L);
+    }
+
+    @Test
+    void testSummariesAreRateLimited() {
+        logger.log(boom);
+        advance(50);
+        for (int i = 0; i < 100; i++) {
+            logger.log(boom);
+        }
+
+        // the bucket holds two summaries
+        verify(log, times(2)).error(eq("{}: {} (seen {} more times)"), any(Object[].class));
+    }
+
+    @Test
+    void testNewWindowLogsStackTraceAgainWithCarriedCount() {
+        logger.log(boom);
+        logger.log(boom);
+        logger.log(boom);
+        advance(60);
+        logger.log(boom);
+
+        verify(log).error("{} seen {} more times in the previous window",
+                new Object[]{IllegalStateException.class.getName(), 2L});
+        verify(log, times(2)).error(eq("boom"), any(Throwable.class));
+    }
+
+    @Test
+    void testErrorsSharingABucketKeepTheirOwnSlots() {
+        logger = new ThrottledErrorLogger(log, Duration.ofSeconds(60), 2, Duration.ofSeconds(10), () -> now, 1);
+        Throwable other = new UnsupportedOperationException("other");
+        for (int i = 0; i < 50; i++) {
+            logger.log(boom);
+            logger.log(other);
+        }
+
+        verify(log, times(1)).error(eq("boom"), any(Throwable.class));
+        verify(log, times(1)).error(eq("other"), any(Throwable.class));
+    }
+
+    @Test
+    void testErrorsSharingABucketKeepTheirOwnSlotsWithLargeClock() {
+        // System.nanoTime is usually far from zero
+        now = 1_000_000_000_000L;
+        logger = new ThrottledErrorLogger(log, Duration.ofSeconds(60), 2, Duration.ofSeconds(10), () -> now, 1);
+        Throwable other = new UnsupportedOperationException("other");
+        for (int i = 0; i < 50; i++) {
+            logger.log(boom);
+            logger.log(other);
+            advance(1);
+        }
+
+        verify(log, times(1)).error(eq("boom"), any(Throwable.class));
+        verify(log, times(1)).error(eq("other"), any(Throwable.class));
+    }
+
+    @Test
+    void testEvictionReportsSuppressedCount() {
+        logger = new ThrottledErrorLogger(log, Duration.ofSeconds(60), 2, Duration.ofSeconds(10), () -> now, 1);
+        logger.log(boom);
+        logger.log(boom);
+        logger.log(boom);
+        Throwable[] others = {new RuntimeException("a"), new UnsupportedOperationException("b"),
+                new ArithmeticException("c"), new IndexOutOfBoundsException("d")};
+        for (Throwable other : others) {
+            advance(1);
+            logger.log(other);
+        }
+
+        verify(log).error("{} seen {} more times before its log slot was reused",
+                new Object[]{IllegalStateException.class.getName(), 2L});
+    }
+
+    @Test
+    void testFingerprintDistinguishesClassesCodesAndCauses() {
+        long[] sameSite = new long[2];
+        for (int i = 0; i < sameSite.length; i++) {
+            sameSite[i] = ThrottledErrorLogger.fingerprint(failure("message " + i));
+        }
+        assertEquals(sameSite[0], sameSite[1]);
+        assertNotEquals(ThrottledErrorLogger.fingerprint(boom),
+                ThrottledErrorLogger.fingerprint(new UnsupportedOperationException("boom")));
+        assertNotEquals(ThrottledErrorLogger.fingerprint(new ErrorCodeException(ErrorCode.RESOURCE_NOT_FOUND, "x")),
+                ThrottledErrorLogger.fingerprint(new ErrorCodeException(ErrorCode.VALIDATION_FAILED, "x")));
+        assertNotEquals(ThrottledErrorLogger.fingerprint(new IllegalStateException("a", new ArithmeticException())),
+                ThrottledErrorLogger.fingerprint(new IllegalStateException("a", new ClassCastException())));
+    }
+
+    @Test
+    void testFingerprintDistinguishesCallSites() {
+        Throwable elsewhere = new IllegalStateException("boom");
+
+        assertNotEquals(ThrottledErrorLogger.fingerprint(boom), ThrottledErrorLogger.fingerprint(elsewhere));
+    }
+
+    @Test
+    void testSameTypeFromAnotherCallSiteLogsItsOwnStackTrace() {
+        Throwable elsewhere = new IllegalStateException("boom");
+        for (int i = 0; i < 10; i++) {
+            logger.log(boom);
+            logger.log(elsewhere);
+        }
+
+        verify(log, times(2)).error(eq("boom"), any(Throwable.class));
+    }
+
+    @Test
+    void testPolicyWithoutStackTraceLogsOneLine() {
+        logger.log(boom, LogPolicy.CLIENT_ERROR);
+
+        verify(log).warn("{}: {}", new Object[]{IllegalStateException.class.getName(), "boom"});
+        verify(log, never()).warn(anyString(), any(Throwable.class));
+    }
+
+    @Test
+    void testDisabledPolicyOrLevelLogsNothing() {
+        logger.log(boom, LogPolicy.OFF);
+        when(log.isEnabledForLevel(Level.DEBUG)).thenReturn(false);
+        logger.log(boom, new LogPolicy(Level.DEBUG, true));
+
+        verify(log, never()).debug(anyString(), any(Object[].class));
+        verify(log, never()).debug(anyString(), any(Throwable.class));
+    }
+
+    private static Throwable failure(String message) {
+        return new IllegalStateException(message);
+    }
+
+    private void advance(long seconds) {
+        now += TimeUnit.SECONDS.toNanos(seconds);
+    }
+}
@@ -0,0 +1,266 @@
+package com.example.errorhandler.filter;
+
+import com.example.errorhandler.DefaultErrorMapper;
+import com.example.errorhandler.ErrorCode;
+import com.example.errorhandler.ErrorCodeException;
+import com.example.errorhandler.ErrorHandlingFilter;
+import com.example.errorhandler.ErrorPayload;
+import com.example.errorhandler.ErrorRenderer;
+import com.example.errorhandler.JsonErrorWriter;
+import com.example.errorhandler.MessageTemplate;
+import com.example.errorhandler.ThrottledErrorLogger;
+import com.example.errorhandler.testing.DiscardingLogger;
+import com.example.errorhandler.testing.InMemoryRequest;
+import com.example.errorhandler.testing.InMemoryResponse;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Bytes allocated per handled error on the hot paths, measured with the per-thread
+ * allocation counter. Precomputed responses must not allocate at all; rendered ones get a
+ * small budget covering the body and the response holding it, or, where the message is
+ * rendered as a string, the message and the payload as well. A change that makes an error
+ * path allocate more fails here instead of showing up as GC pressure in an error storm.
+ */
+class AllocationBudgetTest {
+
+    private static final int WARMUP_RUNS = 20_000;
+    private static final int MEASURED_RUNS = 1_000;
+    private static final int ROUNDS = 3;
+    /**
+     * Slack for scenarios that subtract a new exception's own allocation: its stack trace is
+     * captured a few frames deeper inside the filter than in the baseline.
+     */
+    private static final int EXCEPTION_TOLERANCE = 64;
+    /**
+     * Cost per frame of reading a new exception's stack trace for its log fingerprint:
+     * {@link Throwable#getStackTrace()} creates every element and copies the array.
+     */
+    private static final int STACK_FRAME_BYTES = 64;
+
+    private static com.sun.management.ThreadMXBean threads;
+    /** Keeps results reachable so the JIT cannot drop the allocations being measured. */
+    private static volatile Object sink;
+
+    private final DefaultErrorMapper mapper = new DefaultErrorMapper();
+    private final ErrorHandlingFilter filter = new ErrorHandlingFilter(mapper);
+    private final InMemoryRequest request = new InMemoryRequest("192.0.2.1");
+    private final InMemoryResponse response = new InMemoryResponse();
+    private RuntimeException lastThrown;
+
+    @BeforeAll
+    static void setUpClass() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean,
+                "per-thread allocation counter not available");
+        threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported(), "per-thread allocation counter not supported");
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    @BeforeEach
+    void setUp() {
+        // log as production would, so the deduplication path is part of the budget
+        filter.setErrorLogger(new ThrottledErrorLogger(new DiscardingLogger()));
+    }
+
+    @Test
+    void testMapperTemplateCode() {
+        Throwable coded = new ErrorCodeException(ErrorCode.SERVICE_UNAVAILABLE);
+        assertBudget(0, () -> mapper.toError(coded));
+    }
+
+    @Test
+    void testMapperUnmappedType() {
+        Throwable unmapped = new UnsupportedOperationException("not supported");
+        assertBudget(0, () -> mapper.toError(unmapped));
+    }
+
+    @Test
+    void testMapperWrappedTemplateCode() {
+        Throwable wrapped = new CompletionException(new NullPointerException());
+        assertBudget(0, () -> mapper.toError(wrapped));
+    }
+
+    @Test
+    void testMapperCodeOnly() {
+        Throwable wrapped = new CompletionException(new IllegalArgumentException("customerId"));
+        assertBudget(0, () -> mapper.toErrorCode(wrapped));
+    }
+
+    @Test
+    void testMapperRenderedMessage() {
+        Throwable t = new IllegalArgumentException("customerId");
+        assertBudget(256, () -> mapper.toError(t));
+    }
+
+    @Test
+    void testTemplateRendering() {
+        MessageTemplate template = ErrorCode.RESOURCE_NOT_FOUND.getMessageTemplate();
+        assertBudget(192, () -> template.render("A-42"));
+    }
+
+    @Test
+    void testJsonIntoBuffer() {
+        ErrorPayload payload = new ErrorPayload(ErrorCode.RESOURCE_NOT_FOUND, "Resource not found: A-42.");
+        byte[] buffer = new byte[JsonErrorWriter.encodedLength(payload)];
+        assertBudget(0, () -> JsonErrorWriter.encode(payload, buffer, 0));
+    }
+
+    @Test
+    void testJsonBody() {
+        ErrorPayload payload = new ErrorPayload(ErrorCode.RESOURCE_NOT_FOUND, "Resource not found: A-42.");
+        assertBudget(96, () -> JsonErrorWriter.encode(payload));
+    }
+
+    @Test
+    void testRendererPayloadIntoBuffer() {
+        ErrorPayload payload = new ErrorPayload(ErrorCode.RESOURCE_NOT_FOUND, "Resource not found: A-42.");
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        assertBudget(0, () -> ErrorRenderer.render(payload, buffer.clear()));
+    }
+
+    @Test
+    void testRendererCodeWithArgumentsIntoBuffer() {
+        Object[] args = {"A-42"};
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        assertBudget(0, () -> ErrorRenderer.render(ErrorCode.RESOURCE_NOT_FOUND, buffer.clear(), args));
+    }
+
+    @Test
+    void testFilterPrecomputedResponse() {
+        FilterChain chain = failingWith(new NullPointerException());
+        assertBudget(0, () -> handle(chain));
+        assertEquals(500, response.getStatus());
+    }
+
+    @Test
+    void testFilterRetryableResponse() {
+        FilterChain chain = failingWith(new RejectedExecutionException("queue full"));
+        assertBudget(0, () -> handle(chain));
+        assertEquals(503, response.getStatus());
+    }
+
+    @Test
+    void testFilterRenderedResponse() {
+        // encoded from the arguments: no message or payload
+        FilterChain chain = failingWith(new ErrorCodeException(ErrorCode.RESOURCE_NOT_FOUND, "A-42"));
+        assertBudget(192, () -> handle(chain));
+        assertEquals(404, response.getStatus());
+    }
+
+    @Test
+    void testFilterPrecomputedResponseForNewException() throws Exception {
+        FilterChain chain = failingWithNew(() -> new NullPointerException());
+        assertBudget(EXCEPTION_TOLERANCE + stackTraceBytes(chain), () -> handle(chain), () -> thrownBy(chain));
+        assertEquals(500, response.getStatus());
+    }
+
+    @Test
+    void testFilterRenderedResponseForNewException() throws Exception {
+        FilterChain chain = failingWithNew(() -> new ErrorCodeException(ErrorCode.RESOURCE_NOT_FOUND, "A-42"));
+        assertBudget(192 + EXCEPTION_TOLERANCE + stackTraceBytes(chain), () -> handle(chain), () -> thrownBy(chain));
+        assertEquals(404, response.getStatus());
+    }
+
+    @Test
+    void testFilterRenderedMessageResponse() {
+        FilterChain chain = failingWith(new IllegalArgumentException("customerId"));
+        assertBudget(384, () -> handle(chain));
+        assertEquals(400, response.getStatus());
+    }
+
+    private InMemoryResponse handle(FilterChain chain) throws Exception {
+        response.reset();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    private static FilterChain failingWith(RuntimeException failure) {
+        return (req, resp) -> {
+            throw failure;
+        };
+    }
+
+    private FilterChain failingWithNew(Supplier<RuntimeException> failure) {
+        return (req, resp) -> {
+            lastThrown = failure.get();
+            throw lastThrown;
+        };
+    }
+
+    /**
+     * What reading the trace of an exception thrown by {@code chain} inside the filter may cost.
+     */
+    private long stackTraceBytes(FilterChain chain) throws Exception {
+        handle(chain);
+        return (long) lastThrown.getStackTrace().length * STACK_FRAME_BYTES;
+    }
+
+    /**
+     * Allocates what {@code chain} allocates for its exception, for subtracting it.
+     */
+    private Object thrownBy(FilterChain chain) throws Exception {
+        try {
+            chain.doFilter(request, response);
+            return null;
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+
+    /**
+     * Runs {@code action} until it is compiled, then fails if it allocates more than
+     * {@code budget} bytes per run on average. The best of a few rounds counts, so a one-off
+     * allocation elsewhere on the thread does not fail the test.
+     */
+    private static void assertBudget(long budget, Action action) {
+        assertBudget(budget, action, () -> null);
+    }
+
+    /**
+     * Like {@link #assertBudget(long, Action)}, counting only what {@code action} allocates
+     * beyond {@code baseline}.
+     */
+    private static void assertBudget(long budget, Action action, Action baseline) {
+        try {
+            for (int i = 0; i < WARMUP_RUNS; i++) {
+                sink = action.run();
+                sink = baseline.run();
+            }
+            long perRun = Long.MAX_VALUE;
+            for (int round = 0; round < ROUNDS; round++) {
+                long overhead = measure(baseline);
+                perRun = Math.min(perRun, Math.max(0, measure(action) - overhead) / MEASURED_RUNS);
+            }
+            assertTrue(perRun <= budget, "allocated " + perRun + " bytes per run, budget " + budget);
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static long measure(Action action) throws Exception {
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            sink = action.run();
+        }
+        return threads.getThreadAllocatedBytes(threadId) - before;
+    }
+
+    @FunctionalInterface
+    private interface Action {
+        Object run() throws Exception;
+    }
+}
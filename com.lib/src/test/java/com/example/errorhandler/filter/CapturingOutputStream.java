@@ -0,0 +1,57 @@
+package com.example.errorhandler.filter;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * In-memory {@link ServletOutputStream} for inspecting what the filter wrote.
+ */
+class CapturingOutputStream extends ServletOutputStream {
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private volatile boolean ready = true;
+    private WriteListener writeListener;
+
+    @Override
+    public void write(int b) {
+        bytes.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        bytes.write(b, off, len);
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Simulates a client that has, or has not yet, read everything written so far.
+     */
+    void setReady(boolean ready) {
+        this.ready = ready;
+    }
+
+    @Override
+    public void setWriteListener(WriteListener writeListener) {
+        this.writeListener = writeListener;
+    }
+
+    WriteListener getWriteListener() {
+        return writeListener;
+    }
+
+    byte[] toByteArray() {
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public String toString() {
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -1,22 +1,60 @@
 package com.example.errorhandler.filter;
 
+import com.example.errorhandler.ClientErrorLimiter;
 import com.example.errorhandler.DefaultErrorMapper;
+import com.example.errorhandler.EmergencyMode;
+import com.example.errorhandler.ErrorCode;
+import com.example.errorhandler.ErrorEvent;
 import com.example.errorhandler.ErrorHandlingFilter;
+import com.example.errorhandler.ErrorPayload;
+import com.example.errorhandler.ErrorStormDetector;
+import com.example.errorhandler.ManualClockDetectors;
+import com.example.errorhandler.OverflowPolicy;
+import com.example.errorhandler.StatusResolver;
+import com.example.errorhandler.ThrottledErrorLogger;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
 import jakarta.servlet.FilterChain;
+import jakarta.servlet.FilterConfig;
 import jakarta.servlet.ServletRequest;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.slf4j.Logger;
 import jakarta.servlet.ServletException;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.mockito.Mockito.doThrow;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 
@@ -26,7 +64,8 @@ class ErrorHandlingFilterTest {
     private ServletRequest request;
     private HttpServletResponse response;
     private FilterChain chain;
-    private StringWriter writer;
+    private CapturingOutputStream out;
+    private final AtomicLong stormClock = new AtomicLong();
 
     @BeforeEach
     void setUp() throws IOException {
@@ -36,8 +75,8 @@ class ErrorHandlingFilterTest {
         response = mock(HttpServletResponse.class);
         chain = mock(FilterChain.class);
 
-        writer = new StringWriter();
-        when(response.getWriter()).thenReturn(new PrintWriter(writer));
+        out = new CapturingOutputStream();
+        when(response.getOutputStream()).thenReturn(out);
     }
 
     @Test
@@ -47,8 +86,541 @@ class ErrorHandlingFilterTest {
         filter.doFilter(request, response, chain);
 
         verify(response).setStatus(400);
-        String json = writer.toString();
+        String json = out.toString();
         assertTrue(json.contains("ERR-001"));
         assertTrue(json.contains("input"));
     }
+
+    @Test
+    void testResponseIsEscapedJsonWithExactLength() throws IOException, ServletException {
+        doThrow(new IllegalArgumentException("say \"hi\"\nnow")).when(chain).doFilter(request, response);
+
+        filter.doFilter(request, response, chain);
+
+        assertEquals("{\"code\":\"ERR-001\",\"message\":\"Validation failed for field: say \\\"hi\\\"\\nnow.\"}",
+                out.toString());
+        verify(response).setContentType("application/json;charset=UTF-8");
+        verify(response).setContentLength(out.toByteArray().length);
+    }
+
+    @Test
+    void testFallsBackToWriterWhenStreamUnavailable() throws IOException, ServletException {
+        StringWriter writer = new StringWriter();
+        when(response.getOutputStream()).thenThrow(new IllegalStateException("getWriter() already called"));
+        when(response.getWriter()).thenReturn(new PrintWriter(writer));
+        doThrow(new IllegalArgumentException("input")).when(chain).doFilter(request, response);
+
+        filter.doFilter(request, response, chain);
+
+        assertEquals("{\"code\":\"ERR-001\",\"message\":\"Validation failed for field: input.\"}",
+                writer.toString());
+    }
+
+    @Test
+    void testWriterFallbackDeclaresLengthInWriterCharset() throws IOException, ServletException {
+        StringWriter writer = new StringWriter();
+        when(response.getOutputStream()).thenThrow(new IllegalStateException("getWriter() already called"));
+        when(response.getWriter()).thenReturn(new PrintWriter(writer));
+        when(response.getCharacterEncoding()).thenReturn("ISO-8859-1");
+        doThrow(new IllegalArgumentException("naïve")).when(chain).doFilter(request, response);
+
+        filter.doFilter(request, response, chain);
+
+        String body = "{\"code\":\"ERR-001\",\"message\":\"Validation failed for field: naïve.\"}";
+        assertEquals(body, writer.toString());
+        verify(response).setContentLength(body.length());
+    }
+
+    @Test
+    void testParameterlessCodeServesPrecomputedBody() throws IOException, ServletException {
+        doThrow(new RuntimeException("first")).when(chain).doFilter(request, response);
+        filter.doFilter(request, response, chain);
+        byte[] first = out.toByteArray();
+
+        CapturingOutputStream second = new CapturingOutputStream();
+        when(response.getOutputStream()).thenReturn(second);
+        doThrow(new RuntimeException("second")).when(chain).doFilter(request, response);
+        filter.doFilter(request, response, chain);
+
+        assertEquals("{\"code\":\"ERR-000\",\"message\":\"An unknown error occurred.\"}", out.toString());
+        assertArrayEquals(first, second.toByteArray());
+        verify(response, times(2)).setStatus(500);
+        verify(response, times(2)).setContentLength(first.length);
+    }
+
+    @Test
+    void testCustomStatusResolver() throws IOException, ServletException {
+        StatusResolver teapot = code -> code == ErrorCode.VALIDATION_FAILED ? 418 : code.getHttpStatus();
+        filter = new ErrorHandlingFilter(new DefaultErrorMapper(), teapot);
+        doThrow(new IllegalArgumentException("input")).when(chain).doFilter(request, response);
+
+        filter.doFilter(request, response, chain);
+
+        verify(response).setStatus(418);
+    }
+
+    @Test
+    void testPayloadWithoutErrorCodeResolvesStatusFromCodeString() throws IOException, ServletException {
+        filter = new ErrorHandlingFilter(t -> new ErrorPayload("ERR-003", "nope"));
+        doThrow(new IllegalStateException()).when(chain).doFilter(request, response);
+
+        filter.doFilter(request, response, chain);
+
+        verify(response).setStatus(403);
+    }
+
+    @Test
+    void testClientErrorsLogWithoutStackTraceByDefault() throws IOException, ServletException {
+        Logger log = enabledLogger();
+        filter.setErrorLogger(new ThrottledErrorLogger(log));
+        doThrow(new IllegalArgumentException("input")).when(chain).doFilter(request, response);
+
+        filter.doFilter(request, response, chain);
+
+        verify(log).warn("{}: {}", new Object[]{IllegalArgumentException.class.getName(), "input"});
+        verify(log, never()).error(anyString(), any(Throwable.class));
+    }
+
+    @Test
+    void testServerErrorsLogWithStackTrace() throws IOException, ServletException {
+        Logger log = enabledLogger();
+        filter.setErrorLogger(new ThrottledErrorLogger(log));
+        RuntimeException failure = new RuntimeException("db down");
+        doThrow(failure).when(chain).doFilter(request, response);
+
+        filter.doFilter(request, response, chain);
+
+        verify(log).error("db down", failure);
+    }
+
+    @Test
+    void testLogPolicyFromInitParameter() throws IOException, ServletException {
+        Logger log = enabledLogger();
+        filter.setErrorLogger(new ThrottledErrorLogger(log));
+        FilterConfig config = mock(FilterConfig.class);
+        when(config.getInitParameter("errorLog.policy.VALIDATION_FAILED")).thenReturn("OFF");
+        filter.init(config);
+        doThrow(new IllegalArgumentException("input")).when(chain).doFilter(request, response);
+
+        filter.doFilter(request, response, chain);
+
+        verifyNoInteractions(log);
+        verify(response).setStatus(400);
+    }
+
+    @Test
+    void testInvalidLogPolicyIsRejected() {
+        FilterConfig config = mock(FilterConfig.class);
+        when(config.getInitParameter("errorLog.policy.UNKNOWN_ERROR")).thenReturn("LOUD");
+
+        assertThrows(ServletException.class, () -> filter.init(config));
+    }
+
+    @Test
+    void testAsyncErrorEventsLogOffRequestThreadAndFlushOnDestroy() throws IOException, ServletException {
+        Logger log = enabledLogger();
+        filter.setErrorLogger(new ThrottledErrorLogger(log));
+        List<ErrorEvent> exported = new CopyOnWriteArrayList<>();
+        filter.enableAsyncErrorEvents(64, OverflowPolicy.DROP, exported::add);
+        RuntimeException failure = new RuntimeException("db down");
+        doThrow(failure).when(chain).doFilter(request, response);
+
+        filter.doFilter(request, response, chain);
+        filter.destroy();
+
+        verify(log).error("db down", failure);
+        assertEquals(1, exported.size());
+        assertEquals(ErrorCode.UNKNOWN_ERROR, exported.get(0).payload().errorCode());
+        verify(response).setStatus(500);
+    }
+
+    private static Logger enabledLogger() {
+        Logger log = mock(Logger.class);
+        when(log.isEnabledForLevel(any())).thenReturn(true);
+        return log;
+    }
+
+    @Test
+    void testAsyncWriteReleasesThreadUntilClientIsReady() throws IOException, ServletException {
+        AsyncContext context = asyncRequest();
+        filter.enableAsyncWrites(Duration.ofSeconds(2));
+        doThrow(new IllegalArgumentException("input")).when(chain).doFilter(request, response);
+
+        filter.doFilter(request, response, chain);
+
+        verify(response).setStatus(400);
+        verify(context).setTimeout(2000);
+        assertEquals(0, out.toByteArray().length);
+        assertNotNull(out.getWriteListener());
+
+        // container calls back once the stream is writable; the body is buffered but not yet flushed
+        out.setReady(false);
+        out.getWriteListener().onWritePossible();
+        assertTrue(out.toString().contains("input"));
+        verify(context, never()).complete();
+
+        out.setReady(true);
+        out.getWriteListener().onWritePossible();
+        verify(context).complete();
+        assertEquals(1, out.toString().split("ERR-001", -1).length - 1);
+    }
+
+    @Test
+    void testAsyncWriteTimeoutAbandonsResponseOnce() throws Exception {
+        AsyncContext context = asyncRequest();
+        filter.enableAsyncWrites(Duration.ofMillis(500));
+        doThrow(new IllegalArgumentException("input")).when(chain).doFilter(request, response);
+
+        filter.doFilter(request, response, chain);
+
+        ArgumentCaptor<AsyncListener> listener = ArgumentCaptor.forClass(AsyncListener.class);
+        verify(context).addListener(listener.capture());
+        listener.getValue().onTimeout(mock(AsyncEvent.class));
+        out.getWriteListener().onError(new IOException("reset"));
+
+        verify(context, times(1)).complete();
+    }
+
+    @Test
+    void testAsyncWriteFallsBackToBlockingWithoutAsyncSupport() throws IOException, ServletException {
+        filter.enableAsyncWrites(Duration.ofSeconds(2));
+        doThrow(new IllegalArgumentException("input")).when(chain).doFilter(request, response);
+
+        filter.doFilter(request, response, chain);
+
+        verify(request, never()).startAsync(any(), any());
+        assertTrue(out.toString().contains("input"));
+    }
+
+    private AsyncContext asyncRequest() {
+        AsyncContext context = mock(AsyncContext.class);
+        when(request.isAsyncSupported()).thenReturn(true);
+        when(request.startAsync(request, response)).thenReturn(context);
+        return context;
+    }
+
+    @Test
+    void testAsyncFailureIsMappedThroughListener() throws IOException {
+        AsyncContext context = appStartedAsync();
+
+        filter.doFilter(request, response, chain);
+        AsyncListener listener = registeredListener(context);
+        listener.onError(new AsyncEvent(context, request, response, new IllegalArgumentException("late")));
+
+        verify(response).resetBuffer();
+        verify(response).setStatus(400);
+        assertTrue(out.toString().contains("late"));
+        verify(context).complete();
+    }
+
+    @Test
+    void testAsyncTimeoutIsMappedAsTimeoutException() throws IOException {
+        DefaultErrorMapper mapper = new DefaultErrorMapper();
+        mapper.registerMapping(TimeoutException.class, ErrorCode.RESOURCE_NOT_FOUND);
+        filter = new ErrorHandlingFilter(mapper);
+        AsyncContext context = appStartedAsync();
+
+        filter.doFilter(request, response, chain);
+        registeredListener(context).onTimeout(new AsyncEvent(context, request, response));
+
+        verify(response).setStatus(404);
+        assertTrue(out.toString().contains("ERR-002"));
+        verify(context).complete();
+    }
+
+    @Test
+    void testAsyncListenerIsSharedAcrossRequests() throws IOException {
+        AsyncContext context = appStartedAsync();
+
+        filter.doFilter(request, response, chain);
+        filter.doFilter(request, response, chain);
+
+        ArgumentCaptor<AsyncListener> listeners = ArgumentCaptor.forClass(AsyncListener.class);
+        verify(context, times(2)).addListener(listeners.capture(), eq(request), eq(response));
+        assertSame(listeners.getAllValues().get(0), listeners.getAllValues().get(1));
+    }
+
+    @Test
+    void testAsyncFailureAfterCommitOnlyCompletes() throws IOException {
+        AsyncContext context = appStartedAsync();
+        when(response.isCommitted()).thenReturn(true);
+
+        filter.doFilter(request, response, chain);
+        registeredListener(context).onError(new AsyncEvent(context, request, response, new RuntimeException()));
+
+        verify(response, never()).setStatus(anyInt());
+        assertEquals(0, out.toByteArray().length);
+        verify(context).complete();
+    }
+
+    @Test
+    void testFailureAfterStartAsyncCompletesRequest() throws IOException, ServletException {
+        AsyncContext context = appStartedAsync();
+        doThrow(new IllegalArgumentException("input")).when(chain).doFilter(request, response);
+
+        filter.doFilter(request, response, chain);
+
+        verify(response).setStatus(400);
+        assertTrue(out.toString().contains("input"));
+        verify(context).complete();
+        verify(context, never()).addListener(any(), any(), any());
+    }
+
+    private AsyncContext appStartedAsync() {
+        AsyncContext context = mock(AsyncContext.class);
+        when(request.isAsyncStarted()).thenReturn(true);
+        when(request.getAsyncContext()).thenReturn(context);
+        return context;
+    }
+
+    private AsyncListener registeredListener(AsyncContext context) {
+        ArgumentCaptor<AsyncListener> listener = ArgumentCaptor.forClass(AsyncListener.class);
+        verify(context).addListener(listener.capture(), eq(request), eq(response));
+        return listener.getValue();
+    }
+
+    @Test
+    void testVirtualMachineErrorPropagatesWithoutEmergencyMode() throws IOException, ServletException {
+        doThrow(new StackOverflowError()).when(chain).doFilter(request, response);
+
+        assertThrows(StackOverflowError.class, () -> filter.doFilter(request, response, chain));
+    }
+
+    @Test
+    void testEmergencyModeAnswersVirtualMachineErrorAndShortCircuitsLaterRequests()
+            throws IOException, ServletException {
+        Logger log = enabledLogger();
+        filter.setErrorLogger(new ThrottledErrorLogger(log));
+        try (EmergencyMode emergency = new EmergencyMode(90, Duration.ofMinutes(1))) {
+            filter.enableEmergencyMode(emergency);
+            doThrow(new OutOfMemoryError("Java heap space")).when(chain).doFilter(request, response);
+
+            filter.doFilter(request, response, chain);
+            filter.doFilter(request, response, chain);
+
+            verify(chain, times(1)).doFilter(request, response);
+            verify(response, times(2)).setStatus(503);
+            verify(response, times(2)).setHeader("Retry-After", "60");
+            assertArrayEquals(concat(emergency.getResponse().getBody(), emergency.getResponse().getBody()),
+                    out.toByteArray());
+            verifyNoInteractions(log);
+        } finally {
+            filter.destroy();
+        }
+    }
+
+    @Test
+    void testErrorStormServesCannedResponsesAndSamplesReports() throws Exception {
+        List<ErrorEvent> exported = new CopyOnWriteArrayList<>();
+        filter.enableAsyncErrorEvents(64, OverflowPolicy.DROP, exported::add);
+        filter.enableErrorStormProtection(stormDetector(), false, 1000);
+        doThrow(new IllegalArgumentException("input")).when(chain).doFilter(request, response);
+
+        triggerErrorStorm();
+        CapturingOutputStream degraded = new CapturingOutputStream();
+        when(response.getOutputStream()).thenReturn(degraded);
+        for (int i = 0; i < 5; i++) {
+            filter.doFilter(request, response, chain);
+        }
+        filter.destroy();
+
+        assertEquals(3, exported.size());
+        String canned = "{\"code\":\"ERR-001\",\"message\":\"Validation failed for field.\"}";
+        assertEquals(canned.repeat(5), degraded.toString());
+    }
+
+    @Test
+    void testErrorStormShortCircuitsRouteButLetsProbesThrough() throws Exception {
+        filter.enableErrorStormProtection(stormDetector(), true, 1);
+        doThrow(new IllegalArgumentException("input")).when(chain).doFilter(request, response);
+
+        triggerErrorStorm();
+        for (int i = 0; i < 5; i++) {
+            filter.doFilter(request, response, chain);
+        }
+
+        // three requests tripped the detector, then one probe in ten is admitted
+        verify(chain, times(4)).doFilter(request, response);
+        verify(response, times(4)).setStatus(503);
+        verify(response, times(4)).setHeader("Retry-After", "1");
+    }
+
+    @Test
+    void testClientOverErrorLimitGetsCanned429BeforeChain() throws IOException, ServletException {
+        filter.enableClientErrorLimit(new ClientErrorLimiter(2, Duration.ofMinutes(1)), null);
+        when(request.getRemoteAddr()).thenReturn("10.0.0.1");
+        when(response.getStatus()).thenReturn(400);
+        doThrow(new IllegalArgumentException("input")).when(chain).doFilter(request, response);
+
+        for (int i = 0; i < 4; i++) {
+            filter.doFilter(request, response, chain);
+        }
+
+        verify(chain, times(2)).doFilter(request, response);
+        verify(response, times(2)).setStatus(429);
+        verify(response, times(2)).setHeader("Retry-After", "60");
+    }
+
+    @Test
+    void testServerErrorsDoNotCountAgainstClient() throws IOException, ServletException {
+        filter.enableClientErrorLimit(new ClientErrorLimiter(1, Duration.ofMinutes(1)), null);
+        when(request.getRemoteAddr()).thenReturn("10.0.0.1");
+        when(response.getStatus()).thenReturn(500);
+        doThrow(new RuntimeException("db down")).when(chain).doFilter(request, response);
+
+        filter.doFilter(request, response, chain);
+        filter.doFilter(request, response, chain);
+
+        verify(chain, times(2)).doFilter(request, response);
+    }
+
+    @Test
+    void testClientKeyFromConfiguredHeader() throws IOException, ServletException {
+        HttpServletRequest first = mock(HttpServletRequest.class);
+        HttpServletRequest second = mock(HttpServletRequest.class);
+        when(first.getHeader("X-Client-Id")).thenReturn("abusive");
+        when(second.getHeader("X-Client-Id")).thenReturn("polite");
+        when(first.getRemoteAddr()).thenReturn("10.0.0.1");
+        when(second.getRemoteAddr()).thenReturn("10.0.0.1");
+        when(response.getStatus()).thenReturn(400);
+        filter.enableClientErrorLimit(new ClientErrorLimiter(1, Duration.ofMinutes(1)), "X-Client-Id");
+        doThrow(new IllegalArgumentException("input")).when(chain).doFilter(first, response);
+
+        filter.doFilter(first, response, chain);
+        filter.doFilter(first, response, chain);
+        filter.doFilter(second, response, chain);
+
+        verify(chain, times(1)).doFilter(first, response);
+        verify(chain, times(1)).doFilter(second, response);
+    }
+
+    @Test
+    void testRetryableErrorCarriesRetryAfterAndHint() throws IOException, ServletException {
+        doThrow(new RejectedExecutionException("pool full")).when(chain).doFilter(request, response);
+
+        filter.doFilter(request, response, chain);
+
+        verify(response).setStatus(503);
+        // idle server: minimum delay of 1 s, jittered by a second and kept within 1..30 s
+        long retryAfter = retryAfterHeader();
+        assertTrue(retryAfter >= 1 && retryAfter <= 2, "Retry-After " + retryAfter);
+        assertEquals("{\"code\":\"ERR-005\",\"message\":\"Service temporarily unavailable.\","
+                + "\"retryable\":true,\"retryAfterSeconds\":" + retryAfter + "}", out.toString());
+    }
+
+    @Test
+    void testRetryDelayGrowsWithSaturation() throws IOException, ServletException {
+        filter.setSaturationSignal(() -> 1.0);
+        doThrow(new RejectedExecutionException("pool full")).when(chain).doFilter(request, response);
+
+        filter.doFilter(request, response, chain);
+
+        // saturated: maximum delay of 30 s less up to 25% jitter
+        long retryAfter = retryAfterHeader();
+        assertTrue(retryAfter >= 23 && retryAfter <= 30, "Retry-After " + retryAfter);
+        assertTrue(out.toString().endsWith("\"retryAfterSeconds\":" + retryAfter + "}"));
+    }
+
+    @Test
+    void testNonRetryableErrorHasNoRetryAfter() throws IOException, ServletException {
+        doThrow(new RuntimeException("bug")).when(chain).doFilter(request, response);
+
+        filter.doFilter(request, response, chain);
+
+        verify(response, never()).setHeader(eq("Retry-After"), anyString());
+        assertFalse(out.toString().contains("retry"));
+    }
+
+    @Test
+    void testDefaultCacheControlPerCode() throws IOException, ServletException {
+        doThrow(new RuntimeException("bug")).when(chain).doFilter(request, response);
+        filter.doFilter(request, response, chain);
+        verify(response).setHeader("Cache-Control", "no-store");
+
+        DefaultErrorMapper mapper = new DefaultErrorMapper();
+        mapper.registerMapping(UnsupportedOperationException.class, ErrorCode.RESOURCE_NOT_FOUND);
+        filter = new ErrorHandlingFilter(mapper);
+        doThrow(new UnsupportedOperationException("/missing")).when(chain).doFilter(request, response);
+        filter.doFilter(request, response, chain);
+        verify(response).setHeader("Cache-Control", "private, max-age=60");
+    }
+
+    @Test
+    void testCodeCacheControlSetAfterRouteOverrideReachesRouteAndCannedResponses() throws IOException, ServletException {
+        filter.setCacheControl("/static/", ErrorCode.RESOURCE_NOT_FOUND, "public, max-age=3600");
+        filter.enableClientErrorLimit(new ClientErrorLimiter(1, Duration.ofMinutes(1)), null);
+        filter.setCacheControl(ErrorCode.VALIDATION_FAILED, "max-age=5");
+        filter.setCacheControl(ErrorCode.TOO_MANY_REQUESTS, "max-age=7");
+        HttpServletRequest asset = mock(HttpServletRequest.class);
+        when(asset.getRequestURI()).thenReturn("/static/app.js");
+        when(asset.getRemoteAddr()).thenReturn("10.0.0.1");
+        when(response.getStatus()).thenReturn(400);
+        doThrow(new IllegalArgumentException("input")).when(chain).doFilter(any(), any());
+
+        filter.doFilter(asset, response, chain);
+        verify(response).setHeader("Cache-Control", "max-age=5");
+        filter.doFilter(asset, response, chain);
+        verify(response).setHeader("Cache-Control", "max-age=7");
+    }
+
+    @Test
+    void testCacheControlRouteOverrideFromInitParameters() throws IOException, ServletException {
+        FilterConfig config = mock(FilterConfig.class);
+        when(config.getInitParameter("cacheControl.VALIDATION_FAILED")).thenReturn("");
+        when(config.getInitParameterNames()).thenReturn(Collections.enumeration(
+                List.of("cacheControl.route./static/.RESOURCE_NOT_FOUND")));
+        when(config.getInitParameter("cacheControl.route./static/.RESOURCE_NOT_FOUND"))
+                .thenReturn("public, max-age=3600");
+        DefaultErrorMapper mapper = new DefaultErrorMapper();
+        mapper.registerMapping(UnsupportedOperationException.class, ErrorCode.RESOURCE_NOT_FOUND);
+        filter = new ErrorHandlingFilter(mapper);
+        filter.init(config);
+        HttpServletRequest asset = mock(HttpServletRequest.class);
+        HttpServletRequest api = mock(HttpServletRequest.class);
+        when(asset.getRequestURI()).thenReturn("/static/app.js");
+        when(api.getRequestURI()).thenReturn("/api/orders/1");
+        doThrow(new UnsupportedOperationException()).when(chain).doFilter(any(), any());
+
+        filter.doFilter(asset, response, chain);
+        verify(response).setHeader("Cache-Control", "public, max-age=3600");
+        filter.doFilter(api, response, chain);
+        verify(response).setHeader("Cache-Control", "private, max-age=60");
+
+        doThrow(new IllegalArgumentException("input")).when(chain).doFilter(any(), any());
+        filter.doFilter(api, response, chain);
+        verify(response, times(2)).setHeader(eq("Cache-Control"), anyString());
+    }
+
+    @Test
+    void testCacheControlRouteWithoutCodeIsRejected() {
+        FilterConfig config = mock(FilterConfig.class);
+        when(config.getInitParameterNames()).thenReturn(Collections.enumeration(
+                List.of("cacheControl.route./static/")));
+
+        assertThrows(ServletException.class, () -> filter.init(config));
+    }
+
+    private long retryAfterHeader() {
+        ArgumentCaptor<String> value = ArgumentCaptor.forClass(String.class);
+        verify(response).setHeader(eq("Retry-After"), value.capture());
+        return Long.parseLong(value.getValue());
+    }
+
+    private ErrorStormDetector stormDetector() {
+        return ManualClockDetectors.errorStormDetector(Duration.ofSeconds(1), 50, 20, 2, stormClock::get);
+    }
+
+    private void triggerErrorStorm() throws IOException, ServletException {
+        filter.doFilter(request, response, chain);
+        filter.doFilter(request, response, chain);
+        // complete the bucket so the detector judges it
+        stormClock.addAndGet(Duration.ofMillis(100).toNanos());
+        filter.doFilter(request, response, chain);
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
 }
@@ -0,0 +1,112 @@
+package com.example.errorhandler.mapper;
+
+import com.example.errorhandler.DefaultErrorMapper;
+import com.example.errorhandler.ErrorCode;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.EmptyStackException;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class DefaultErrorMapperConcurrencyTest {
+
+    private static final int READERS = 8;
+
+    private static final List<Class<? extends Throwable>> REGISTERED = List.of(
+            UnsupportedOperationException.class,
+            ArithmeticException.class,
+            ArrayStoreException.class,
+            ClassCastException.class,
+            IndexOutOfBoundsException.class,
+            NegativeArraySizeException.class,
+            SecurityException.class,
+            ConcurrentModificationException.class,
+            EmptyStackException.class,
+            NoSuchElementException.class,
+            CancellationException.class,
+            IllegalMonitorStateException.class,
+            BrokenBarrierException.class,
+            IOException.class);
+
+    @Test
+    void testConcurrentRegistrationIsNeverLostOrTorn() throws Exception {
+        DefaultErrorMapper mapper = new DefaultErrorMapper();
+        List<Throwable> samples = new ArrayList<>();
+        for (Class<? extends Throwable> type : REGISTERED) {
+            samples.add(type.getDeclaredConstructor().newInstance());
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(READERS + REGISTERED.size());
+        AtomicBoolean done = new AtomicBoolean();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int r = 0; r < READERS; r++) {
+                futures.add(pool.submit(() -> {
+                    boolean[] seen = new boolean[samples.size()];
+                    start.await();
+                    while (!done.get()) {
+                        assertEquals(ErrorCode.VALIDATION_FAILED.getCode(),
+                                mapper.toError(new NumberFormatException("n")).code());
+                        for (int i = 0; i < samples.size(); i++) {
+                            String code = mapper.toError(samples.get(i)).code();
+                            if (code.equals(expectedFor(i).getCode())) {
+                                seen[i] = true;
+                            } else if (seen[i] || !code.equals(ErrorCode.UNKNOWN_ERROR.getCode())) {
+                                fail("Mapping for " + REGISTERED.get(i).getSimpleName() + " regressed to " + code);
+                            }
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (int i = 0; i < REGISTERED.size(); i++) {
+                int index = i;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    mapper.registerMapping(REGISTERED.get(index), expectedFor(index));
+                    assertEquals(expectedFor(index).getCode(), mapper.toError(samples.get(index)).code());
+                    return null;
+                }));
+            }
+
+            start.countDown();
+            for (Future<?> writer : futures.subList(READERS, futures.size())) {
+                writer.get(30, TimeUnit.SECONDS);
+            }
+            Thread.sleep(50);
+            done.set(true);
+            for (Future<?> reader : futures.subList(0, READERS)) {
+                reader.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            done.set(true);
+            pool.shutdownNow();
+        }
+
+        for (int i = 0; i < samples.size(); i++) {
+            assertEquals(expectedFor(i).getCode(), mapper.toError(samples.get(i)).code(),
+                    "Lost registration for " + REGISTERED.get(i).getSimpleName());
+        }
+    }
+
+    private static ErrorCode expectedFor(int index) {
+        // skip UNKNOWN_ERROR so a registered mapping is distinguishable from a miss
+        ErrorCode[] codes = ErrorCode.values();
+        return codes[1 + index % (codes.length - 1)];
+    }
+}
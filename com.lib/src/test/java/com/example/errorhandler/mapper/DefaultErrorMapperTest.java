@@ -2,10 +2,20 @@ package com.example.errorhandler.mapper;
 
 import com.example.errorhandler.DefaultErrorMapper;
 import com.example.errorhandler.ErrorCode;
+import com.example.errorhandler.ErrorCoded;
 import com.example.errorhandler.ErrorPayload;
+import jakarta.servlet.ServletException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.FileNotFoundException;
+import java.io.UncheckedIOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class DefaultErrorMapperTest {
@@ -39,4 +49,185 @@ class DefaultErrorMapperTest {
         ErrorPayload payload = mapper.toError(t);
         assertEquals(ErrorCode.UNKNOWN_ERROR.getCode(), payload.code());
     }
+
+    @Test
+    void testSubclassOfMappedExceptionUsesParentMapping() {
+        Throwable t = new NumberFormatException("amount");
+        ErrorPayload payload = mapper.toError(t);
+        assertEquals(ErrorCode.VALIDATION_FAILED.getCode(), payload.code());
+        assertTrue(payload.message().contains("amount"));
+    }
+
+    @Test
+    void testMostSpecificMappingWins() {
+        mapper.registerMapping(NumberFormatException.class, ErrorCode.UNPROCESSABLE_ENTITY);
+        assertEquals(ErrorCode.UNPROCESSABLE_ENTITY.getCode(),
+                mapper.toError(new NumberFormatException("x")).code());
+        assertEquals(ErrorCode.VALIDATION_FAILED.getCode(),
+                mapper.toError(new IllegalArgumentException("x")).code());
+    }
+
+    @Test
+    void testInterfaceMapping() {
+        mapper.registerInterfaceMapping(Missing.class, ErrorCode.RESOURCE_NOT_FOUND);
+        ErrorPayload payload = mapper.toError(new MissingOrderException("order 7"));
+        assertEquals(ErrorCode.RESOURCE_NOT_FOUND.getCode(), payload.code());
+    }
+
+    @Test
+    void testInterfaceMappingRejectsClasses() {
+        assertThrows(IllegalArgumentException.class,
+                () -> mapper.registerInterfaceMapping(String.class, ErrorCode.RESOURCE_NOT_FOUND));
+    }
+
+    @Test
+    void testRegistrationAfterMissIsPickedUp() {
+        Throwable t = new UnsupportedOperationException("op");
+        assertEquals(ErrorCode.UNKNOWN_ERROR.getCode(), mapper.toError(t).code());
+        assertEquals(ErrorCode.UNKNOWN_ERROR.getCode(), mapper.toError(t).code());
+
+        mapper.registerMapping(UnsupportedOperationException.class, ErrorCode.PERMISSION_DENIED);
+        assertEquals(ErrorCode.PERMISSION_DENIED.getCode(), mapper.toError(t).code());
+    }
+
+    @Test
+    void testParameterlessCodeReturnsSharedPayload() {
+        ErrorPayload first = mapper.toError(new RuntimeException("a"));
+        ErrorPayload second = mapper.toError(new RuntimeException("b"));
+        assertSame(first, second);
+        assertEquals(ErrorCode.UNKNOWN_ERROR.getTemplate(), first.message());
+        assertTrue(first.isTemplateMessage());
+    }
+
+    @Test
+    void testFormattedPayloadIsNotShared() {
+        ErrorPayload payload = mapper.toError(new IllegalArgumentException("name"));
+        assertEquals(ErrorCode.VALIDATION_FAILED, payload.errorCode());
+        assertFalse(payload.isTemplateMessage());
+    }
+
+    @Test
+    void testErrorCodedExceptionUsesItsOwnCodeAndArguments() {
+        Throwable t = new CodedException(ErrorCode.RESOURCE_NOT_FOUND, "order 42");
+        ErrorPayload payload = mapper.toError(t);
+        assertEquals(ErrorCode.RESOURCE_NOT_FOUND, payload.errorCode());
+        assertEquals("Resource not found: order 42.", payload.message());
+    }
+
+    @Test
+    void testErrorCodedExceptionBeatsRegisteredMapping() {
+        mapper.registerMapping(CodedException.class, ErrorCode.PERMISSION_DENIED);
+        ErrorPayload payload = mapper.toError(new CodedException(ErrorCode.VALIDATION_FAILED, "email"));
+        assertEquals(ErrorCode.VALIDATION_FAILED.getCode(), payload.code());
+        assertEquals("Validation failed for field: email.", payload.message());
+    }
+
+    @Test
+    void testErrorCodedExceptionWithoutArgumentsUsesTemplate() {
+        ErrorPayload payload = mapper.toError(new CodedException(ErrorCode.RESOURCE_NOT_FOUND));
+        assertTrue(payload.isTemplateMessage());
+    }
+
+    @Test
+    void testWrappedCauseIsMapped() {
+        Throwable t = new CompletionException(new ExecutionException(new IllegalArgumentException("field")));
+        ErrorPayload payload = mapper.toError(t);
+        assertEquals(ErrorCode.VALIDATION_FAILED.getCode(), payload.code());
+        assertEquals("Validation failed for field: field.", payload.message());
+    }
+
+    @Test
+    void testServletExceptionIsUnwrapped() {
+        Throwable t = new ServletException(new CodedException(ErrorCode.RESOURCE_NOT_FOUND, "7"));
+        assertEquals(ErrorCode.RESOURCE_NOT_FOUND.getCode(), mapper.toError(t).code());
+    }
+
+    @Test
+    void testWrapperWithoutCauseIsMappedItself() {
+        assertEquals(ErrorCode.UNKNOWN_ERROR.getCode(), mapper.toError(new ExecutionException("x", null)).code());
+    }
+
+    @Test
+    void testCustomWrapperAndUnregister() {
+        mapper.registerWrapper(UncheckedIOException.class);
+        Throwable t = new UncheckedIOException(new FileNotFoundException("x"));
+        mapper.registerMapping(FileNotFoundException.class, ErrorCode.RESOURCE_NOT_FOUND);
+        assertEquals(ErrorCode.RESOURCE_NOT_FOUND.getCode(), mapper.toError(t).code());
+
+        mapper.unregisterWrapper(UncheckedIOException.class);
+        assertEquals(ErrorCode.UNKNOWN_ERROR.getCode(), mapper.toError(t).code());
+    }
+
+    @Test
+    void testUnwrapDepthIsBounded() {
+        mapper.setMaxUnwrapDepth(1);
+        Throwable t = new CompletionException(new CompletionException(new IllegalArgumentException("x")));
+        assertEquals(ErrorCode.UNKNOWN_ERROR.getCode(), mapper.toError(t).code());
+    }
+
+    @Test
+    void testCauseCycleTerminates() {
+        CycleException a = new CycleException();
+        CycleException b = new CycleException();
+        a.cause = b;
+        b.cause = a;
+        mapper.registerWrapper(CycleException.class);
+        mapper.setMaxUnwrapDepth(Integer.MAX_VALUE);
+        assertEquals(ErrorCode.UNKNOWN_ERROR.getCode(), mapper.toError(a).code());
+    }
+
+    interface Missing {
+    }
+
+    static class MissingOrderException extends IllegalStateException implements Missing {
+        MissingOrderException(String message) {
+            super(message);
+        }
+    }
+
+    static class CodedException extends RuntimeException implements ErrorCoded {
+        private final ErrorCode code;
+        private final Object[] args;
+
+        CodedException(ErrorCode code, Object... args) {
+            this.code = code;
+            this.args = args;
+        }
+
+        @Override
+        public ErrorCode getErrorCode() {
+            return code;
+        }
+
+        @Override
+        public Object[] getErrorArguments() {
+            return args;
+        }
+    }
+
+    static class CycleException extends RuntimeException {
+        private Throwable cause;
+
+        @Override
+        public synchronized Throwable getCause() {
+            return cause;
+        }
+    }
+
+    @Test
+    void testToErrorCodeMatchesToError() {
+        assertSame(ErrorCode.VALIDATION_FAILED, mapper.toErrorCode(new IllegalArgumentException("x")));
+        assertSame(ErrorCode.PERMISSION_DENIED,
+                mapper.toErrorCode(new CompletionException(new IllegalStateException("x"))));
+        assertSame(ErrorCode.UNKNOWN_ERROR, mapper.toErrorCode(new UnsupportedOperationException()));
+    }
+
+    @Test
+    void testOverloadAndTimeoutsMapToServiceUnavailable() {
+        assertSame(ErrorCode.SERVICE_UNAVAILABLE, mapper.toErrorCode(new RejectedExecutionException()));
+        assertSame(ErrorCode.SERVICE_UNAVAILABLE, mapper.toErrorCode(new TimeoutException()));
+        assertSame(ErrorCode.SERVICE_UNAVAILABLE, mapper.toErrorCode(new SocketTimeoutException()));
+        assertSame(ErrorCode.SERVICE_UNAVAILABLE,
+                mapper.toErrorCode(new ExecutionException(new TimeoutException())));
+    }
 }
@@ -0,0 +1,326 @@
+package com.example.errorhandler.harness;
+
+import com.example.errorhandler.ErrorCode;
+import com.example.errorhandler.ErrorCodeException;
+import com.example.errorhandler.ErrorHandlingFilter;
+import com.example.errorhandler.ErrorEventPipeline;
+import com.example.errorhandler.OverflowPolicy;
+import com.example.errorhandler.ThrottledErrorLogger;
+import com.example.errorhandler.testing.DiscardingLogger;
+import com.example.errorhandler.testing.InMemoryRequest;
+import com.example.errorhandler.testing.InMemoryResponse;
+import jakarta.servlet.FilterChain;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Drives {@link ErrorHandlingFilter} with in-memory requests from a growing number of
+ * platform threads, then from a growing number of virtual threads, and reports throughput,
+ * latency percentiles and {@code jdk.VirtualThreadPinned} events recorded with JFR.
+ * <p>
+ * Requests cycle through a success, an error answered with a precomputed body, an error
+ * with a rendered message and a retryable error. Each body write parks for
+ * {@code --write-delay-micros}, like a socket write, so a virtual thread that blocks while
+ * holding a monitor anywhere on the error path is reported as pinned. Throughput that stops
+ * growing with the thread count points at a shared lock or a contended cache line. With
+ * many more virtual threads than carriers, latencies include the wait for a carrier after
+ * the write.
+ * <p>
+ * Exits with status {@code 1} if any thread was pinned, unless {@code --fail-on-pinning=false}.
+ */
+public final class ScalingHarness {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int MIX = 4;
+
+    private final Options options;
+    private final ErrorHandlingFilter filter = new ErrorHandlingFilter();
+    private final InMemoryRequest request = new InMemoryRequest("192.0.2.1");
+    private final Map<String, Integer> pinnedSites = new LinkedHashMap<>();
+
+    private ScalingHarness(Options options) {
+        this.options = options;
+        filter.setErrorLogger(new ThrottledErrorLogger(new DiscardingLogger()));
+        if (options.asyncEvents) {
+            filter.enableAsyncErrorEvents(ErrorEventPipeline.DEFAULT_CAPACITY, OverflowPolicy.DROP);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        ScalingHarness harness = new ScalingHarness(options);
+        int pinned = harness.run();
+        if (pinned > 0 && options.failOnPinning) {
+            System.exit(1);
+        }
+    }
+
+    private int run() throws Exception {
+        // let the JIT settle before anything is measured
+        runPlatform(Runtime.getRuntime().availableProcessors(), options.requests);
+
+        System.out.printf("%-8s %9s %9s %13s %9s %9s %9s %9s %7s%n",
+                "mode", "threads", "requests", "requests/s", "p50 us", "p99 us", "p99.9 us", "max us", "pinned");
+        List<Result> results = new ArrayList<>();
+        for (int threads : options.platformThreads) {
+            results.add(record(() -> runPlatform(threads, options.requests)));
+            print(results.get(results.size() - 1));
+        }
+        for (int threads : options.virtualThreads) {
+            results.add(record(() -> runVirtual(threads, options.requests)));
+            print(results.get(results.size() - 1));
+        }
+        filter.destroy();
+
+        int pinned = results.stream().mapToInt(Result::pinned).sum();
+        if (pinned > 0) {
+            System.out.println();
+            System.out.println("Pinned at:");
+            pinnedSites.entrySet().stream()
+                    .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                    .forEach(site -> System.out.printf("%7d  %s%n", site.getValue(), site.getKey()));
+        }
+        return pinned;
+    }
+
+    private Result runPlatform(int threads, int requests) throws InterruptedException {
+        int workerCount = Math.min(threads, requests);
+        long[] latencies = new long[requests];
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[workerCount];
+        for (int t = 0; t < workerCount; t++) {
+            int offset = firstRequest(t, workerCount, requests);
+            int count = firstRequest(t + 1, workerCount, requests) - offset;
+            workers[t] = Thread.ofPlatform().name("harness-", t).start(() -> {
+                awaitQuietly(start);
+                handle(latencies, offset, count);
+            });
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return Result.of("platform", workerCount, latencies, System.nanoTime() - begin);
+    }
+
+    private Result runVirtual(int threads, int requests) {
+        int workerCount = Math.min(threads, requests);
+        long[] latencies = new long[requests];
+        long begin = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int t = 0; t < workerCount; t++) {
+                int offset = firstRequest(t, workerCount, requests);
+                int count = firstRequest(t + 1, workerCount, requests) - offset;
+                executor.execute(() -> handle(latencies, offset, count));
+            }
+        }
+        return Result.of("virtual", workerCount, latencies, System.nanoTime() - begin);
+    }
+
+    /**
+     * Index of the first request handled by worker {@code t}. Workers split {@code requests}
+     * evenly, so every row runs the same total whatever its thread count.
+     */
+    private static int firstRequest(int t, int workers, int requests) {
+        return (int) ((long) requests * t / workers);
+    }
+
+    private void handle(long[] latencies, int offset, int count) {
+        InMemoryResponse response = new InMemoryResponse(options.writeDelayNanos);
+        try {
+            for (int i = 0; i < count; i++) {
+                FilterChain chain = chain(offset + i);
+                response.reset();
+                long begin = System.nanoTime();
+                filter.doFilter(request, response, chain);
+                latencies[offset + i] = System.nanoTime() - begin;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Chain for the {@code n}th request. Exceptions are created per request, as an
+     * application would, so their stack traces are part of the cost.
+     */
+    private static FilterChain chain(int n) {
+        return switch (n % MIX) {
+            case 0 -> (req, resp) -> resp.getOutputStream().write(new byte[]{'o', 'k'});
+            case 1 -> (req, resp) -> {
+                throw new NullPointerException();
+            };
+            case 2 -> (req, resp) -> {
+                throw new ErrorCodeException(ErrorCode.RESOURCE_NOT_FOUND, "A-" + n);
+            };
+            default -> (req, resp) -> {
+                throw new RejectedExecutionException("queue full");
+            };
+        };
+    }
+
+    /**
+     * Runs {@code run} while JFR records pinning, and adds the pinned events to the result.
+     */
+    private Result record(Run run) throws Exception {
+        Path file = Files.createTempFile("harness-", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(PINNED_EVENT).withThreshold(Duration.ZERO).withStackTrace();
+            recording.start();
+            Result result = run.run();
+            recording.stop();
+            recording.dump(file);
+            int pinned = 0;
+            for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+                if (event.getEventType().getName().equals(PINNED_EVENT)) {
+                    pinned++;
+                    pinnedSites.merge(site(event), 1, Integer::sum);
+                }
+            }
+            return result.withPinned(pinned);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static String site(RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return "(no stack trace)";
+        }
+        return event.getStackTrace().getFrames().stream()
+                .limit(6)
+                .map(ScalingHarness::frame)
+                .collect(Collectors.joining(" <- "));
+    }
+
+    private static String frame(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+
+    private static void print(Result result) {
+        System.out.printf("%-8s %9d %9d %13.0f %9.1f %9.1f %9.1f %9.1f %7d%n",
+                result.mode(), result.threads(), result.requests(), result.throughput(),
+                micros(result.p50()), micros(result.p99()), micros(result.p999()), micros(result.max()),
+                result.pinned());
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1_000.0;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Run {
+        Result run() throws Exception;
+    }
+
+    private record Result(String mode, int threads, int requests, double throughput,
+                          long p50, long p99, long p999, long max, int pinned) {
+
+        static Result of(String mode, int threads, long[] latencies, long elapsedNanos) {
+            Arrays.sort(latencies);
+            return new Result(mode, threads, latencies.length,
+                    latencies.length * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos,
+                    percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 0.999),
+                    latencies[latencies.length - 1], 0);
+        }
+
+        Result withPinned(int pinned) {
+            return new Result(mode, threads, requests, throughput, p50, p99, p999, max, pinned);
+        }
+
+        private static long percentile(long[] sorted, double p) {
+            int index = (int) Math.ceil(p * sorted.length) - 1;
+            return sorted[Math.max(0, index)];
+        }
+    }
+
+    private record Options(int[] platformThreads, int[] virtualThreads, int requests,
+                           long writeDelayNanos, boolean asyncEvents, boolean failOnPinning) {
+
+        private static final String USAGE = "Options: --platform=1,2,4 --virtual=1000,10000 --requests=200000"
+                + " --write-delay-micros=10 --async-events[=false] --fail-on-pinning[=true]";
+
+        static Options parse(String[] args) {
+            int cores = Runtime.getRuntime().availableProcessors();
+            int[] platform = doublings(cores * 2);
+            int[] virtual = {1_000, 10_000, 100_000, 1_000_000};
+            int requests = 200_000;
+            long writeDelayMicros = 10;
+            boolean asyncEvents = false;
+            boolean failOnPinning = true;
+            for (String arg : args) {
+                if (!arg.startsWith("--")) {
+                    throw new IllegalArgumentException("Unexpected argument " + arg + ". " + USAGE);
+                }
+                int eq = arg.indexOf('=');
+                // switches may be given bare, which turns them on
+                String value = eq < 0 ? null : arg.substring(eq + 1);
+                switch (eq < 0 ? arg.substring(2) : arg.substring(2, eq)) {
+                    case "platform" -> platform = ints(required(arg, value));
+                    case "virtual" -> virtual = ints(required(arg, value));
+                    case "requests" -> requests = Integer.parseInt(required(arg, value));
+                    case "write-delay-micros" -> writeDelayMicros = Long.parseLong(required(arg, value));
+                    case "async-events" -> asyncEvents = value == null || Boolean.parseBoolean(value);
+                    case "fail-on-pinning" -> failOnPinning = value == null || Boolean.parseBoolean(value);
+                    default -> throw new IllegalArgumentException("Unknown option " + arg + ". " + USAGE);
+                }
+            }
+            if (requests < 1) {
+                throw new IllegalArgumentException("--requests must be positive: " + requests + ". " + USAGE);
+            }
+            return new Options(platform, virtual, requests, TimeUnit.MICROSECONDS.toNanos(writeDelayMicros),
+                    asyncEvents, failOnPinning);
+        }
+
+        private static String required(String arg, String value) {
+            if (value == null) {
+                throw new IllegalArgumentException("Option " + arg + " needs a value. " + USAGE);
+            }
+            return value;
+        }
+
+        private static int[] doublings(int max) {
+            List<Integer> counts = new ArrayList<>();
+            for (int n = 1; n < max; n *= 2) {
+                counts.add(n);
+            }
+            counts.add(max);
+            return counts.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        private static int[] ints(String value) {
+            if (value.isBlank()) {
+                return new int[0];
+            }
+            return Arrays.stream(value.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.example.errorhandler.testing;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.PrintWriter;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Response stub that records the status and counts the body without storing or allocating, so
+ * measurements see only the code under test. Writing the body can park the calling thread,
+ * like a socket write to a slow client, so a virtual thread that blocks there while holding a
+ * monitor shows up as pinned. Reusable via {@link #reset()}.
+ */
+public final class InMemoryResponse implements HttpServletResponse {
+
+    private final CountingOutputStream out;
+    private int status = 200;
+    private String contentType;
+
+    public InMemoryResponse() {
+        this(0);
+    }
+
+    /**
+     * @param writeDelayNanos time each body write blocks for, or {@code 0} to return at once
+     */
+    public InMemoryResponse(long writeDelayNanos) {
+        this.out = new CountingOutputStream(writeDelayNanos);
+    }
+
+    public long bodyBytes() {
+        return out.count;
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+        return out;
+    }
+
+    @Override
+    public PrintWriter getWriter() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setCharacterEncoding(String name) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setContentLength(int value) {
+        // the body is counted instead
+    }
+
+    @Override
+    public void setContentLengthLong(long value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    @Override
+    public void setBufferSize(int value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int getBufferSize() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void flushBuffer() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void resetBuffer() {
+        out.reset();
+    }
+
+    @Override
+    public boolean isCommitted() {
+        return false;
+    }
+
+    @Override
+    public void reset() {
+        status = 200;
+        contentType = null;
+        out.reset();
+    }
+
+    @Override
+    public void setLocale(Locale locale) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Locale getLocale() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void addCookie(Cookie cookie) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean containsHeader(String name) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String encodeURL(String name) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String encodeRedirectURL(String name) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    @Deprecated
+    public String encodeUrl(String name) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    @Deprecated
+    public String encodeRedirectUrl(String name) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void sendError(int status, String message) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void sendError(int value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void sendRedirect(String name) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setDateHeader(String name, long value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void addDateHeader(String name, long value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        // headers are precomputed strings; storing them would only add noise
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    @Override
+    @Deprecated
+    public void setStatus(int status, String message) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int getStatus() {
+        return status;
+    }
+
+    @Override
+    public String getHeader(String name) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Collection<String> getHeaders(String name) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Collection<String> getHeaderNames() {
+        throw new UnsupportedOperationException();
+    }
+
+    private static final class CountingOutputStream extends ServletOutputStream {
+
+        private final long writeDelayNanos;
+        private long count;
+
+        CountingOutputStream(long writeDelayNanos) {
+            this.writeDelayNanos = writeDelayNanos;
+        }
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            if (writeDelayNanos > 0) {
+                LockSupport.parkNanos(writeDelayNanos);
+            }
+            count += len;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            throw new UnsupportedOperationException();
+        }
+
+        void reset() {
+            count = 0;
+        }
+    }
+}